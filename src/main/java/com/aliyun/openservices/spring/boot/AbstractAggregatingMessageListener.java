@@ -0,0 +1,215 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.annotation.BatchMessageConsumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 窗口聚合监听器：适用于计数、点击等高频增量消息，使用 {@link BatchMessageConsumer} 注册
+ * 各消费线程交付的批次按 {@link #key(Message)} 分组进入同一个内存中的滚动窗口，同一 key 的值通过 {@link #reduce(Object, Object)} 合并，
+ * 窗口达到 {@link #windowSize()} 条消息或打开 {@link #windowMillis()} 毫秒后关闭，调用一次 {@link #flush(Map, List)} 写入下游。
+ * 消费线程等待所在窗口写入完成后再返回：写入成功才提交，写入失败窗口内所有批次稍后重新消费（至少一次）。
+ * 窗口状态跨批次保留，但等待期间占用消费线程，窗口内消息数不超过 consumeThreadNums × consumeMessageBatchMaxSize，
+ * windowSize 大于该值时只有时间窗口生效；windowMillis 加上写入耗时须小于 consumeTimeout 与看门狗的软截止时间
+ */
+@Slf4j
+public abstract class AbstractAggregatingMessageListener<K, V> extends AbstractBatchListenerSupport {
+
+    private final Object lock = new Object();
+
+    /*
+     * 当前接收消息的窗口，guarded by lock
+     */
+    private Window<K, V> current;
+
+    @Override
+    protected Action doConsume(List<Message> messages, ConsumeContext context) {
+        // 先在线程内合并本批，key、value 或 reduce 抛出异常时整批稍后重新消费，不影响窗口
+        Map<K, V> batch = new HashMap<>();
+        List<Message> accepted = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            int count = this.apply(message);
+            if (count != 0) {
+                log.warn("AggregatingMessageListener ignore repeat consume msgKey:{},topic:{}", message.getKey(), message.getTopic());
+                continue;
+            }
+            try {
+                batch.merge(this.key(message), this.value(message), this::reduce);
+            } catch (Exception e) {
+                log.error("aggregate error topic:{},msgKey:{}", message.getTopic(), message.getKey(), e);
+                return Action.ReconsumeLater;
+            }
+            accepted.add(message);
+        }
+        if (accepted.isEmpty()) {
+            return Action.CommitMessage;
+        }
+        Window<K, V> window;
+        boolean full;
+        synchronized (lock) {
+            if (current == null) {
+                current = new Window<>(System.currentTimeMillis() + this.windowMillis());
+            }
+            window = current;
+            try {
+                for (Map.Entry<K, V> entry : batch.entrySet()) {
+                    window.values.merge(entry.getKey(), entry.getValue(), this::reduce);
+                }
+            } catch (RuntimeException e) {
+                // 窗口已合并部分值，整个窗口作废，所有批次重新消费
+                log.error("AggregatingMessageListener reduce error, window of {} messages will be reconsumed", window.messages.size(), e);
+                window.failed = true;
+            }
+            window.messages.addAll(accepted);
+            full = window.failed || window.messages.size() >= this.windowSize();
+            if (full) {
+                this.close(window);
+            }
+        }
+        if (full) {
+            this.flushWindow(window);
+        }
+        return this.await(window, accepted) ? Action.CommitMessage : Action.ReconsumeLater;
+    }
+
+    /*
+     * 等待窗口写入完成；到达窗口截止时间仍未关闭时，由当前线程关闭窗口并写入
+     */
+    private boolean await(Window<K, V> window, List<Message> messages) {
+        try {
+            long remaining = window.deadline - System.currentTimeMillis();
+            if (remaining > 0 && window.done.await(remaining, TimeUnit.MILLISECONDS)) {
+                return window.success;
+            }
+            boolean owner;
+            synchronized (lock) {
+                owner = !window.closed;
+                if (owner) {
+                    this.close(window);
+                }
+            }
+            if (owner) {
+                this.flushWindow(window);
+            } else {
+                window.done.await();
+            }
+            return window.success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 消息已计入窗口，重新消费可能重复计数，与至少一次语义一致
+            log.warn("AggregatingMessageListener interrupted, {} messages will be reconsumed, topic:{}", messages.size(),
+                    messages.get(0).getTopic());
+            return false;
+        }
+    }
+
+    private void close(Window<K, V> window) {
+        window.closed = true;
+        if (current == window) {
+            current = null;
+        }
+    }
+
+    private void flushWindow(Window<K, V> window) {
+        if (window.failed) {
+            window.done.countDown();
+            return;
+        }
+        try {
+            this.flush(Collections.unmodifiableMap(window.values), Collections.unmodifiableList(window.messages));
+            window.success = true;
+            log.info("AggregatingMessageListener flushed {} messages into {} keys", window.messages.size(), window.values.size());
+        } catch (Exception e) {
+            log.error("AggregatingMessageListener flush error, {} messages will be reconsumed", window.messages.size(), e);
+        } finally {
+            window.done.countDown();
+        }
+    }
+
+    /*
+     * 窗口时长（毫秒），也是消费线程等待写入的最长时间
+     */
+    protected long windowMillis() {
+        return 1000;
+    }
+
+    /*
+     * 窗口最大消息数
+     */
+    protected int windowSize() {
+        return 1000;
+    }
+
+    /*
+     * 幂等判断，返回非 0 的消息不计入窗口，随所在批次提交
+     * 只应检查消息是否已写入（如由 {@link #flush(Map, List)} 在同一事务中记录的消息 Key），不要在这里标记已处理，
+     * 否则窗口写入失败后重新投递的消息会被跳过
+     */
+    public abstract int apply(Message message);
+
+    /*
+     * 聚合 key，如计数对象的 ID
+     */
+    protected abstract K key(Message message) throws Exception;
+
+    /*
+     * 单条消息的增量值，不能为 null
+     */
+    protected abstract V value(Message message) throws Exception;
+
+    /*
+     * 合并同一 key 的两个增量值
+     */
+    protected abstract V reduce(V left, V right);
+
+    /*
+     * 写入一个窗口的聚合结果，每个 key 一次写入；抛出异常时窗口内所有消息稍后重新消费
+     *
+     * @param window key -> 合并后的值
+     */
+    protected abstract void flush(Map<K, V> window) throws Exception;
+
+    /*
+     * 写入一个窗口的聚合结果；需要配合 {@link #apply(Message)} 去重时覆盖该方法，在写入聚合结果的同一事务中记录消息 Key
+     *
+     * @param window   key -> 合并后的值
+     * @param messages 计入窗口的消息
+     */
+    protected void flush(Map<K, V> window, List<Message> messages) throws Exception {
+        this.flush(window);
+    }
+
+    private static final class Window<K, V> {
+
+        private final long deadline;
+        private final Map<K, V> values = new HashMap<>();
+        private final List<Message> messages = new ArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        /*
+         * guarded by lock
+         */
+        private boolean closed;
+        private boolean failed;
+        /*
+         * 写入后由 done 发布
+         */
+        private boolean success;
+
+        Window(long deadline) {
+            this.deadline = deadline;
+        }
+
+    }
+
+}
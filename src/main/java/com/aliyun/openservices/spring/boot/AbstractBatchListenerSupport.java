@@ -0,0 +1,31 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.List;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.batch.BatchMessageListener;
+
+/**
+ * 批量消费监听器的公共入口，整批消息经过 {@link AbstractListenerSupport} 的消费流程后交给 {@link #doConsume(List, ConsumeContext)}
+ */
+public abstract class AbstractBatchListenerSupport extends AbstractListenerSupport<ConsumeContext, Action> implements BatchMessageListener {
+
+    protected AbstractBatchListenerSupport() {
+        super("BatchMessageListener", true, Action.CommitMessage, Action.ReconsumeLater);
+    }
+
+    @Override
+    public Action consume(List<Message> messages, ConsumeContext context) {
+        return this.process(messages, context);
+    }
+
+    @Override
+    final Action dispatch(List<Message> messages, ConsumeContext context) {
+        return this.doConsume(messages, context);
+    }
+
+    protected abstract Action doConsume(List<Message> messages, ConsumeContext context);
+
+}
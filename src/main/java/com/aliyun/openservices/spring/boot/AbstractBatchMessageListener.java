@@ -1,29 +1,27 @@
 package com.aliyun.openservices.spring.boot;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.aliyun.openservices.ons.api.Action;
 import com.aliyun.openservices.ons.api.ConsumeContext;
 import com.aliyun.openservices.ons.api.Message;
-import com.aliyun.openservices.ons.api.batch.BatchMessageListener;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public abstract class AbstractBatchMessageListener implements BatchMessageListener {
-
-    public String expression(){
-        return null;
-    }
+public abstract class AbstractBatchMessageListener extends AbstractBatchListenerSupport {
 
     @Override
-    public Action consume(List<Message> messages, ConsumeContext context) {
+    protected Action doConsume(List<Message> messages, ConsumeContext context) {
 
-    	for (Message message : messages) {
-    		log.info("BatchMessageListener start msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+    	for (Message message : this.compact(messages)) {
+    		log.info("BatchMessageListener start msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
             int count = this.apply(message);
             if (count != 0) {
-                log.warn("BatchMessageListener ignore repeat consume msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+                log.warn("BatchMessageListener ignore repeat consume msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
                 continue;
             }
             try {
@@ -37,6 +35,76 @@ public abstract class AbstractBatchMessageListener implements BatchMessageListen
     	return Action.CommitMessage;
     }
 
+    /*
+     * 批内压缩：同一 key 只保留最后一条（或 {@link #merge(Message, Message)} 合并后的一条），放在该 key 最后出现的位置；
+     * 没有 key 或 key 标记为顺序敏感的消息保持原样。被覆盖的消息不再分发，随整批一起提交
+     */
+    protected List<Message> compact(List<Message> messages) {
+        if (messages.size() < 2) {
+            return messages;
+        }
+        List<Message> compacted = null;
+        Map<String, Integer> positions = null;
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            String key = this.compactionKey(message);
+            if (key == null || this.isOrderSensitive(key)) {
+                if (compacted != null) {
+                    compacted.add(message);
+                }
+                continue;
+            }
+            if (compacted == null) {
+                compacted = new ArrayList<>(messages.subList(0, i));
+                positions = new HashMap<>();
+            }
+            Integer previous = positions.get(key);
+            if (previous != null) {
+                message = this.merge(compacted.get(previous), message);
+                compacted.set(previous, null);
+            }
+            positions.put(key, compacted.size());
+            compacted.add(message);
+        }
+        if (compacted == null) {
+            return messages;
+        }
+        List<Message> dispatch = new ArrayList<>(compacted.size());
+        for (Message message : compacted) {
+            if (message != null) {
+                dispatch.add(message);
+            }
+        }
+        if (dispatch.size() < messages.size()) {
+            log.debug("BatchMessageListener compacted {} messages into {}", messages.size(), dispatch.size());
+        }
+        return dispatch;
+    }
+
+    /*
+     * 批内压缩的 key，如实体 ID；默认返回 null 即不压缩
+     */
+    protected String compactionKey(Message message) {
+        return null;
+    }
+
+    /*
+     * 顺序敏感的 key 不压缩，保留完整的消息序列
+     */
+    protected boolean isOrderSensitive(String key) {
+        return false;
+    }
+
+    /*
+     * 合并同一 key 的两条消息，默认保留后一条
+     *
+     * @param previous 先前保留的消息
+     * @param latest   后到的消息
+     */
+    protected Message merge(Message previous, Message latest) {
+        return latest;
+    }
+
     public abstract int apply(Message message);
 
     public abstract void consume(int count, Message message, ConsumeContext context) throws Exception;
@@ -0,0 +1,74 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Properties;
+
+import com.aliyun.openservices.ons.api.Admin;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 延迟启动的客户端包装：首次使用时才调用被包装客户端的 start()
+ */
+@Slf4j
+public abstract class AbstractLazyAdmin<T extends Admin> implements Admin {
+
+	private final T delegate;
+
+	private volatile boolean started = false;
+
+	protected AbstractLazyAdmin(T delegate) {
+		this.delegate = delegate;
+	}
+
+	/*
+	 * 获取已启动的被包装客户端，首次调用时启动
+	 *
+	 * @return
+	 */
+	protected T delegate() {
+		if (!started) {
+			synchronized (this) {
+				if (!started) {
+					long begin = System.currentTimeMillis();
+					delegate.start();
+					started = true;
+					log.info("ONS client [{}] lazily started in {} ms", delegate.getClass().getSimpleName(), System.currentTimeMillis() - begin);
+				}
+			}
+		}
+		return delegate;
+	}
+
+	public T getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public boolean isStarted() {
+		return started && delegate.isStarted();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return started && delegate.isClosed();
+	}
+
+	@Override
+	public void start() {
+		this.delegate();
+	}
+
+	@Override
+	public void updateCredential(Properties credentialProperties) {
+		delegate.updateCredential(credentialProperties);
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		// 从未启动过的客户端无需关闭
+		if (started) {
+			delegate.shutdown();
+		}
+	}
+
+}
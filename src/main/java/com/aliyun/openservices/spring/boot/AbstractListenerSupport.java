@@ -0,0 +1,232 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.aliyun.openservices.ons.api.Message;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 监听器的公共消费流程：链路追踪 -> 背压 -> 消费指标 -> claim-check -> 看门狗 -> {@link #dispatch(List, Object)}
+ * 单条、顺序与批量监听器共用同一流程，单条消息以只含一条消息的列表传入；C 为消费上下文类型，A 为消费结果类型
+ */
+@Slf4j
+abstract class AbstractListenerSupport<C, A> implements BeanNameAware {
+
+    private final String kind;
+
+    private final boolean batch;
+
+    private final A success;
+
+    private final A retry;
+
+    private AliyunOnsBackPressureController backPressureController;
+
+    private AliyunOnsClaimCheck claimCheck;
+
+    private AliyunOnsConsumeMetrics consumeMetrics;
+
+    private OnsTracing tracing;
+
+    private AliyunOnsConsumeWatchdog consumeWatchdog;
+
+    private String beanName;
+
+    private volatile AliyunOnsBackPressureController.Limiter limiter;
+
+    /*
+     * @param kind    日志中的监听器类型
+     * @param batch   是否为批量消费，决定链路追踪的范围
+     * @param success 消费成功的结果
+     * @param retry   稍后重新消费的结果
+     */
+    AbstractListenerSupport(String kind, boolean batch, A success, A retry) {
+        this.kind = kind;
+        this.batch = batch;
+        this.success = success;
+        this.retry = retry;
+    }
+
+    @Override
+    public void setBeanName(String beanName) {
+        this.beanName = beanName;
+    }
+
+    /*
+     * 监听器名称，即 beanName，背压、消费指标与看门狗按该名称区分监听器
+     */
+    public String listenerName() {
+        return beanName != null ? beanName : this.getClass().getName();
+    }
+
+    public String expression(){
+        return null;
+    }
+
+    /*
+     * 消费看门狗的软截止时间（毫秒），小于等于 0 时使用全局配置
+     */
+    protected long softDeadlineMillis() {
+        return 0;
+    }
+
+    @Autowired(required = false)
+    public void setBackPressureController(AliyunOnsBackPressureController backPressureController) {
+        this.backPressureController = backPressureController;
+        this.limiter = null;
+    }
+
+    @Autowired(required = false)
+    public void setClaimCheck(AliyunOnsClaimCheck claimCheck) {
+        this.claimCheck = claimCheck;
+    }
+
+    @Autowired(required = false)
+    public void setConsumeMetrics(AliyunOnsConsumeMetrics consumeMetrics) {
+        this.consumeMetrics = consumeMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setTracing(OnsTracing tracing) {
+        this.tracing = tracing;
+    }
+
+    @Autowired(required = false)
+    public void setConsumeWatchdog(AliyunOnsConsumeWatchdog consumeWatchdog) {
+        this.consumeWatchdog = consumeWatchdog;
+    }
+
+    final A process(List<Message> messages, C context) {
+        if (messages.isEmpty()) {
+            return this.dispatch(messages, context);
+        }
+        if (tracing == null) {
+            return this.throttle(messages, context);
+        }
+        OnsTracing.Scope scope = batch ? tracing.startBatchConsume(messages) : tracing.startConsume(messages.get(0));
+        A action = retry;
+        try {
+            action = this.throttle(messages, context);
+            return action;
+        } finally {
+            scope.close(action == success);
+        }
+    }
+
+    private A throttle(List<Message> messages, C context) {
+        if (backPressureController == null) {
+            return this.measure(messages, context);
+        }
+        AliyunOnsBackPressureController.Limiter current = limiter;
+        if (current == null) {
+            current = limiter = backPressureController.limiter(this.listenerName());
+        }
+        // 下游饱和时等待消费许可，整批消息占用一个许可；等待超时或线程被中断时稍后重试
+        if (!current.acquire()) {
+            Message first = messages.get(0);
+            log.warn("{} no back pressure permit, reconsume later msgKey:{},topic:{},size:{}", kind, first.getKey(), first.getTopic(),
+                    messages.size());
+            return retry;
+        }
+        A action = retry;
+        try {
+            action = this.measure(messages, context);
+            return action;
+        } finally {
+            current.release(action == success);
+        }
+    }
+
+    private A measure(List<Message> messages, C context) {
+        if (consumeMetrics == null) {
+            return this.claim(messages, context);
+        }
+        String listener = this.listenerName();
+        long begin = consumeMetrics.begin(listener);
+        A action = retry;
+        try {
+            action = this.claim(messages, context);
+            return action;
+        } finally {
+            consumeMetrics.end(listener, begin, action == success, messages.size());
+        }
+    }
+
+    /*
+     * claim-check 转存的消息体不在处理前读取，消息中保留引用，由处理方通过 {@link #body(Message)} 按需读取；
+     * 未开启 claim-check 时无法读取转存的消息体，稍后重试而不是把引用当作消息体交给处理方
+     */
+    private A claim(List<Message> messages, C context) {
+        List<String> references = null;
+        for (Message message : messages) {
+            String reference = message.getUserProperties(AliyunOnsClaimCheck.PROPERTY_REFERENCE);
+            if (reference == null) {
+                continue;
+            }
+            if (claimCheck == null) {
+                log.error("{} received claim-check message but claim-check is not enabled msgKey:{},topic:{},reference:{}", kind,
+                        message.getKey(), message.getTopic(), reference);
+                return retry;
+            }
+            if (references == null) {
+                references = new ArrayList<>();
+            }
+            references.add(reference);
+        }
+        A action = this.watch(messages, context);
+        if (references != null && action == success) {
+            for (String reference : references) {
+                claimCheck.committed(reference);
+            }
+        }
+        return action;
+    }
+
+    private A watch(List<Message> messages, C context) {
+        if (consumeWatchdog == null) {
+            return this.dispatch(messages, context);
+        }
+        Callable<A> handler = () -> this.dispatch(messages, context);
+        if (consumeWatchdog.isIsolated() && tracing != null) {
+            // 处理方在看门狗的隔离线程上执行，延续当前消费的追踪上下文
+            handler = tracing.wrap(handler);
+        }
+        // 开启 abandon 时超过软截止时间直接返回稍后重试，不再等待处理方
+        return consumeWatchdog.watch(this.listenerName(), messages.get(0), messages.size(), this.softDeadlineMillis(), handler, retry);
+    }
+
+    /*
+     * 消息体句柄：claim-check 转存的消息体在读取时才从 {@link OnsBlobStore} 以流的方式打开，getBody() 仍为引用
+     */
+    protected OnsMessageBody body(Message message) {
+        return new OnsMessageBody(claimCheck, message);
+    }
+
+    /*
+     * 以流的方式读取消息体，见 {@link #body(Message)}
+     */
+    protected InputStream openBody(Message message) throws IOException {
+        return this.body(message).openStream();
+    }
+
+    /*
+     * 读取完整消息体，见 {@link #body(Message)}；大消息体优先使用 {@link #openBody(Message)}
+     */
+    protected byte[] readBody(Message message) throws IOException {
+        return this.body(message).getBytes();
+    }
+
+    /*
+     * 交给具体监听器处理，异常由实现方转换为消费结果
+     */
+    abstract A dispatch(List<Message> messages, C context);
+
+}
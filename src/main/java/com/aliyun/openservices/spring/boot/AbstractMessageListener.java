@@ -1,5 +1,8 @@
 package com.aliyun.openservices.spring.boot;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.aliyun.openservices.ons.api.Action;
 import com.aliyun.openservices.ons.api.ConsumeContext;
 import com.aliyun.openservices.ons.api.Message;
@@ -8,18 +11,27 @@ import com.aliyun.openservices.ons.api.MessageListener;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public abstract class AbstractMessageListener implements MessageListener {
+public abstract class AbstractMessageListener extends AbstractListenerSupport<ConsumeContext, Action> implements MessageListener {
 
-    public String expression(){
-        return null;
+    protected AbstractMessageListener() {
+        super("MessageListener", false, Action.CommitMessage, Action.ReconsumeLater);
     }
 
     @Override
     public Action consume(Message message, ConsumeContext context) {
-        log.info("MessageListener start msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+        return this.process(Collections.singletonList(message), context);
+    }
+
+    @Override
+    final Action dispatch(List<Message> messages, ConsumeContext context) {
+        return this.doConsume(messages.get(0));
+    }
+
+    protected Action doConsume(Message message) {
+        log.info("MessageListener start msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
         int count = this.apply(message);
         if (count != 0) {
-            log.warn("MessageListener repeat consume  msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+            log.warn("MessageListener repeat consume  msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
             return Action.CommitMessage;
         }
         try {
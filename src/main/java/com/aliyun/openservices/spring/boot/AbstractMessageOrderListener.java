@@ -1,5 +1,8 @@
 package com.aliyun.openservices.spring.boot;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.aliyun.openservices.ons.api.Message;
 import com.aliyun.openservices.ons.api.order.ConsumeOrderContext;
 import com.aliyun.openservices.ons.api.order.MessageOrderListener;
@@ -8,18 +11,29 @@ import com.aliyun.openservices.ons.api.order.OrderAction;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public abstract class AbstractMessageOrderListener implements MessageOrderListener {
+public abstract class AbstractMessageOrderListener extends AbstractListenerSupport<ConsumeOrderContext, OrderAction>
+        implements MessageOrderListener {
 
-    public String expression(){
-        return null;
+    protected AbstractMessageOrderListener() {
+        // 失败时挂起当前队列，suspendTimeMillis 后重试
+        super("MessageOrderListener", false, OrderAction.Success, OrderAction.Suspend);
     }
 
     @Override
     public OrderAction consume(Message message, ConsumeOrderContext context) {
-        log.info("MessageOrderListener start msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+        return this.process(Collections.singletonList(message), context);
+    }
+
+    @Override
+    final OrderAction dispatch(List<Message> messages, ConsumeOrderContext context) {
+        return this.doConsume(messages.get(0));
+    }
+
+    protected OrderAction doConsume(Message message) {
+        log.info("MessageOrderListener start msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
         int count = this.apply(message);
         if (count != 0) {
-            log.warn("MessageOrderListener repeat consume  msgKey:{},topic:{},body：{}", message.getKey(), message.getTopic(), new String(message.getBody()));
+            log.warn("MessageOrderListener repeat consume  msgKey:{},topic:{},body:{}", message.getKey(), message.getTopic(), this.body(message));
             return OrderAction.Success;
         }
         try {
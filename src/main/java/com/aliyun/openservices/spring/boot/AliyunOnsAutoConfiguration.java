@@ -1,20 +1,40 @@
 package com.aliyun.openservices.spring.boot;
 
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import com.aliyun.openservices.ons.api.ONSFactory;
 import com.aliyun.openservices.ons.api.Producer;
 import com.aliyun.openservices.ons.api.bean.OrderProducerBean;
 import com.aliyun.openservices.ons.api.bean.ProducerBean;
 import com.aliyun.openservices.ons.api.order.OrderProducer;
+import com.aliyun.openservices.spring.boot.actuate.AliyunOnsEndpoint;
+import com.aliyun.openservices.spring.boot.actuate.AliyunOnsHealthIndicator;
+import com.aliyun.openservices.spring.boot.reactive.ReactiveOnsTemplate;
+import com.aliyun.openservices.spring.boot.replay.AliyunOnsReplayer;
+import com.aliyun.openservices.spring.boot.tracing.OpenTelemetryOnsTracing;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+
+import reactor.core.scheduler.Schedulers;
 
 @Configuration
 @ConditionalOnClass({ ONSFactory.class })
-@EnableConfigurationProperties({ AliyunProperties.class, AliyunOnsMqProperties.class, AliyunOnsMqPoolProperties.class})
+@EnableConfigurationProperties({ AliyunProperties.class, AliyunOnsMqProperties.class, AliyunOnsMqPoolProperties.class,
+	AliyunOnsBackPressureProperties.class, AliyunOnsClaimCheckProperties.class, AliyunOnsTracingProperties.class, AliyunOnsDelayProperties.class,
+	AliyunOnsKeyGeneratorProperties.class, AliyunOnsWatchdogProperties.class, AliyunOnsReplayProperties.class,
+	AliyunOnsMetricsProperties.class })
 public class AliyunOnsAutoConfiguration {
 
 	@Bean(destroyMethod = "shutdown")
@@ -22,6 +42,10 @@ public class AliyunOnsAutoConfiguration {
     public OrderProducer orderProducerBean( AliyunProperties onsProperties, AliyunOnsMqProperties onsMqProperties) {
         OrderProducerBean orderProducerBean = new OrderProducerBean();
         orderProducerBean.setProperties(onsMqProperties.toProperties(onsProperties));
+        // 开启 lazyInit 后在首次发送时启动，否则创建时启动，其他 Bean 的初始化回调中即可发送
+        if (onsMqProperties.isLazyInit()) {
+            return new LazyOrderProducer(orderProducerBean);
+        }
         orderProducerBean.start();
         return orderProducerBean;
     }
@@ -31,13 +55,161 @@ public class AliyunOnsAutoConfiguration {
     public Producer producerBean(AliyunProperties onsProperties, AliyunOnsMqProperties onsMqProperties) {
         ProducerBean producerBean = new ProducerBean();
         producerBean.setProperties(onsMqProperties.toProperties(onsProperties));
+        if (onsMqProperties.isLazyInit()) {
+            return new LazyProducer(producerBean);
+        }
         producerBean.start();
         return producerBean;
     }
     
+    @Bean
+    @ConditionalOnMissingBean
+    public AliyunOnsClientStarter aliyunOnsClientStarter(AliyunOnsMqProperties onsMqProperties) {
+        return new AliyunOnsClientStarter(onsMqProperties);
+    }
+    
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsBackPressureProperties.PREFIX, value = "enabled", havingValue = "true")
+    public AliyunOnsBackPressureController aliyunOnsBackPressureController(AliyunOnsBackPressureProperties backPressureProperties,
+    		AliyunOnsMqProperties onsMqProperties, ObjectProvider<OnsDownstreamProbe> downstreamProbes) {
+        return new AliyunOnsBackPressureController(backPressureProperties, downstreamProbes.orderedStream().collect(Collectors.toList()),
+        		TimeUnit.MINUTES.toMillis(onsMqProperties.getConsumeTimeout()));
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsClaimCheckProperties.PREFIX, value = "enabled", havingValue = "true")
+    public OnsBlobStore onsBlobStore(AliyunOnsClaimCheckProperties claimCheckProperties) {
+        return new LocalFileOnsBlobStore(claimCheckProperties.getLocalDirectory());
+    }
+    
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsClaimCheckProperties.PREFIX, value = "enabled", havingValue = "true")
+    public AliyunOnsClaimCheck aliyunOnsClaimCheck(AliyunOnsClaimCheckProperties claimCheckProperties, OnsBlobStore blobStore) {
+        return new AliyunOnsClaimCheck(blobStore, claimCheckProperties);
+    }
+    
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsMetricsProperties.PREFIX, value = "enabled", havingValue = "true", matchIfMissing = true)
+    public AliyunOnsConsumeMetrics aliyunOnsConsumeMetrics(AliyunOnsMetricsProperties metricsProperties) {
+        return new AliyunOnsConsumeMetrics(metricsProperties.getIntervalMillis());
+    }
+    
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsWatchdogProperties.PREFIX, value = "enabled", havingValue = "true")
+    public AliyunOnsConsumeWatchdog aliyunOnsConsumeWatchdog(AliyunOnsWatchdogProperties watchdogProperties) {
+        return new AliyunOnsConsumeWatchdog(watchdogProperties);
+    }
+    
+    @Configuration
+    @ConditionalOnProperty(prefix = AliyunOnsKeyGeneratorProperties.PREFIX, value = "enabled", havingValue = "true", matchIfMissing = true)
+    static class KeyGeneratorConfiguration {
+
+        /*
+         * 节点 ID 必须显式指定，未指定时不自动生成 Key，超出范围时启动失败
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = AliyunOnsKeyGeneratorProperties.PREFIX, value = "node-id")
+        public OnsKeyGenerator onsKeyGenerator(AliyunOnsKeyGeneratorProperties keyGeneratorProperties) {
+            return new TimeOrderedOnsKeyGenerator(keyGeneratorProperties.getNodeId());
+        }
+
+    }
+    
 	@Bean
 	public AliyunOnsMqTemplate aliyunOnsMqTemplate(AliyunOnsMqPoolProperties poolProperties) {
 		return new AliyunOnsMqTemplate(poolProperties);
 	}
 	
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsDelayProperties.PREFIX, value = "enabled", havingValue = "true")
+    public AliyunOnsDelayScheduler aliyunOnsDelayScheduler(AliyunOnsDelayProperties delayProperties, AliyunOnsMqTemplate aliyunOnsMqTemplate) {
+        return new AliyunOnsDelayScheduler(delayProperties, aliyunOnsMqTemplate.getThreadPool());
+    }
+	
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = AliyunOnsReplayProperties.PREFIX, value = "enabled", havingValue = "true")
+    public AliyunOnsReplayer aliyunOnsReplayer(AliyunOnsReplayProperties replayProperties, AliyunOnsMqTemplate aliyunOnsMqTemplate,
+    		ObjectProvider<Producer> producer, ObjectProvider<OrderProducer> orderProducer) {
+        return new AliyunOnsReplayer(replayProperties, aliyunOnsMqTemplate, producer.getIfUnique(), orderProducer.getIfUnique());
+    }
+	
+    @Bean
+    @ConditionalOnMissingBean
+    public AliyunOnsRefresher aliyunOnsRefresher(AliyunOnsMqTemplate aliyunOnsMqTemplate, AliyunProperties onsProperties,
+    		AliyunOnsMqProperties onsMqProperties, AliyunOnsMqPoolProperties poolProperties, ListableBeanFactory beanFactory) {
+        return new AliyunOnsRefresher(aliyunOnsMqTemplate, onsProperties, onsMqProperties, poolProperties, beanFactory);
+    }
+	
+	@Configuration
+	@ConditionalOnClass(name = "reactor.core.publisher.Flux")
+	static class ReactiveOnsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactiveOnsTemplate reactiveOnsTemplate(AliyunOnsMqTemplate aliyunOnsMqTemplate) {
+			return new ReactiveOnsTemplate(aliyunOnsMqTemplate, Schedulers.boundedElastic());
+		}
+
+	}
+	
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+	@ConditionalOnProperty(prefix = AliyunOnsMqProperties.PREFIX + ".metrics", value = "enabled", havingValue = "true", matchIfMissing = true)
+	static class AliyunOnsActuatorConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public AliyunOnsEndpoint aliyunOnsEndpoint(AliyunOnsMqTemplate aliyunOnsMqTemplate, AliyunOnsConsumeMetrics consumeMetrics,
+				AliyunOnsRefresher refresher, ObjectProvider<AliyunOnsConsumeWatchdog> consumeWatchdog) {
+			AliyunOnsEndpoint endpoint = new AliyunOnsEndpoint(aliyunOnsMqTemplate, consumeMetrics, refresher);
+			endpoint.setConsumeWatchdog(consumeWatchdog.getIfAvailable());
+			return endpoint;
+		}
+
+		@Bean
+		@ConditionalOnMissingBean(name = "onsHealthIndicator")
+		public AliyunOnsHealthIndicator onsHealthIndicator(AliyunOnsMqTemplate aliyunOnsMqTemplate, ListableBeanFactory beanFactory,
+				AliyunOnsRefresher refresher) {
+			return new AliyunOnsHealthIndicator(aliyunOnsMqTemplate, beanFactory, refresher);
+		}
+
+	}
+	
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+	static class AliyunOnsRefreshConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public AliyunOnsEnvironmentChangeListener aliyunOnsEnvironmentChangeListener(AliyunOnsRefresher refresher,
+				Environment environment) {
+			return new AliyunOnsEnvironmentChangeListener(refresher, environment);
+		}
+
+	}
+	
+	@Configuration
+	@ConditionalOnClass(name = "io.opentelemetry.api.OpenTelemetry")
+	@ConditionalOnProperty(prefix = AliyunOnsTracingProperties.PREFIX, value = "enabled", havingValue = "true")
+	static class AliyunOnsTracingConfiguration {
+
+		/*
+		 * 优先使用上下文中的 OpenTelemetry 实例，否则使用 GlobalOpenTelemetry（如 Java Agent 注册的实例）
+		 */
+		@Bean
+		@ConditionalOnMissingBean
+		public OnsTracing onsTracing(AliyunOnsTracingProperties tracingProperties, ObjectProvider<OpenTelemetry> openTelemetry) {
+			return new OpenTelemetryOnsTracing(openTelemetry.getIfAvailable(GlobalOpenTelemetry::get), tracingProperties.getSampleRatio());
+		}
+
+	}
+	
 }
@@ -0,0 +1,252 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 消费背压控制器：每个监听器（按 beanName）一个 {@link Limiter}，基于 AIMD 分别调整并发消费许可数
+ * 作用于该监听器的下游探针报告饱和或失败率超过阈值时许可数减半，下游健康时每个评估周期按 recoverStep 逐步恢复；
+ * 许可由 {@link Semaphore} 计数，获取与归还是无锁的 CAS，只有许可不足时才阻塞。
+ * 等待许可最多 maxWaitMillis（不超过 consumeTimeout 的一半），超时后消息稍后重新消费，避免等待超过 consumeTimeout 被客户端判为失败
+ */
+@Slf4j
+public class AliyunOnsBackPressureController {
+
+	private final AliyunOnsBackPressureProperties properties;
+
+	private final List<OnsDownstreamProbe> probes;
+
+	private final long maxWaitMillis;
+
+	private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService evaluator;
+
+	/*
+	 * @param properties
+	 * @param probes             下游探针
+	 * @param consumeTimeoutMillis 消费超时时间，等待许可的时间不超过其一半
+	 */
+	public AliyunOnsBackPressureController(AliyunOnsBackPressureProperties properties, List<OnsDownstreamProbe> probes,
+			long consumeTimeoutMillis) {
+		this.properties = properties;
+		this.probes = probes == null ? Collections.emptyList() : probes;
+		this.maxWaitMillis = Math.min(properties.getMaxWaitMillis(), consumeTimeoutMillis / 2);
+		this.evaluator = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("ons-back-pressure-%d").setDaemon(true).build());
+		this.evaluator.scheduleWithFixedDelay(this::evaluate, properties.getEvaluateIntervalMillis(),
+				properties.getEvaluateIntervalMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * 监听器的许可，首次调用时按 maxConcurrency 创建
+	 *
+	 * @param listener 监听器 beanName
+	 * @return
+	 */
+	public Limiter limiter(String listener) {
+		return limiters.computeIfAbsent(listener, Limiter::new);
+	}
+
+	protected void evaluate() {
+		try {
+			// 每个探针每个周期只调用一次
+			Map<OnsDownstreamProbe, Boolean> saturated = new LinkedHashMap<>(probes.size());
+			for (OnsDownstreamProbe probe : probes) {
+				saturated.put(probe, this.isSaturated(probe));
+			}
+			for (Limiter limiter : limiters.values()) {
+				limiter.evaluate(saturated);
+			}
+		} catch (Exception e) {
+			log.error("Back pressure evaluation failed: {}", e.getMessage());
+		}
+	}
+
+	private boolean isSaturated(OnsDownstreamProbe probe) {
+		try {
+			return probe.isSaturated();
+		} catch (Exception e) {
+			log.warn("Downstream probe {} failed, treated as saturated: {}", probe, e.getMessage());
+			return true;
+		}
+	}
+
+	/*
+	 * 各监听器当前的许可数
+	 */
+	public Map<String, Integer> getLimits() {
+		Map<String, Integer> limits = new LinkedHashMap<>(limiters.size());
+		for (Limiter limiter : limiters.values()) {
+			limits.put(limiter.listener, limiter.getLimit());
+		}
+		return Collections.unmodifiableMap(limits);
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public void shutdown() {
+		evaluator.shutdownNow();
+		for (Limiter limiter : limiters.values()) {
+			limiter.closed = true;
+		}
+	}
+
+	/**
+	 * 单个监听器的并发消费许可
+	 */
+	public final class Limiter {
+
+		private final String listener;
+
+		private final ResizableSemaphore permits;
+
+		private final LongAdder successes = new LongAdder();
+
+		private final LongAdder failures = new LongAdder();
+
+		private final LongAdder timeouts = new LongAdder();
+
+		/*
+		 * 当前并发消费许可数，只由评估线程修改
+		 */
+		private volatile int limit;
+
+		private volatile boolean closed;
+
+		private Limiter(String listener) {
+			this.listener = listener;
+			this.limit = properties.getMaxConcurrency();
+			this.permits = new ResizableSemaphore(limit);
+		}
+
+		/*
+		 * 获取消费许可，许可不足时最多等待 maxWaitMillis
+		 *
+		 * @return 是否获取到许可，等待超时或线程被中断时返回 false，此时调用方不得调用 release 并应稍后重新消费
+		 */
+		public boolean acquire() {
+			if (closed) {
+				return true;
+			}
+			try {
+				if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+				timeouts.increment();
+				log.warn("Consume of [{}] throttled by back pressure for {} ms, limit: {}, inFlight: {}", listener, maxWaitMillis, limit,
+						this.getInFlight());
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		/*
+		 * 归还消费许可并记录本次消费结果
+		 *
+		 * @param success 是否消费成功
+		 */
+		public void release(boolean success) {
+			(success ? successes : failures).increment();
+			permits.release();
+		}
+
+		void evaluate(Map<OnsDownstreamProbe, Boolean> saturated) {
+			long success = successes.sumThenReset();
+			long failure = failures.sumThenReset();
+			long total = success + failure;
+			boolean overloaded = total >= properties.getMinRequests() && (double) failure / total > properties.getMaxErrorRate();
+			for (Map.Entry<OnsDownstreamProbe, Boolean> entry : saturated.entrySet()) {
+				if (overloaded) {
+					break;
+				}
+				overloaded = entry.getValue() && entry.getKey().appliesTo(listener);
+			}
+			int current = limit;
+			int next = overloaded ? Math.max(properties.getMinConcurrency(), current / 2)
+					: Math.min(properties.getMaxConcurrency(), current + properties.getRecoverStep());
+			if (next == current) {
+				return;
+			}
+			// 缩小时可用许可可能为负，正在消费的线程归还后才有新的许可
+			if (next > current) {
+				permits.release(next - current);
+			} else {
+				permits.reducePermits(current - next);
+			}
+			this.limit = next;
+			if (overloaded) {
+				log.warn("Downstream of [{}] saturated (success: {}, failure: {}), consume concurrency reduced {} -> {}", listener, success,
+						failure, current, next);
+			} else {
+				log.info("Consume concurrency of [{}] recovered {} -> {}", listener, current, next);
+			}
+		}
+
+		public String getListener() {
+			return listener;
+		}
+
+		public int getLimit() {
+			return limit;
+		}
+
+		/*
+		 * 正在消费中的数量
+		 */
+		public int getInFlight() {
+			return Math.max(0, limit - permits.availablePermits());
+		}
+
+		/*
+		 * 正在等待许可的消费线程数（估计值）
+		 */
+		public int getWaiting() {
+			return permits.getQueueLength();
+		}
+
+		/*
+		 * 等待许可超时而稍后重新消费的次数
+		 */
+		public long getTimeouts() {
+			return timeouts.sum();
+		}
+
+	}
+
+	/**
+	 * 可缩小许可数的信号量
+	 */
+	private static final class ResizableSemaphore extends Semaphore {
+
+		private static final long serialVersionUID = 1L;
+
+		ResizableSemaphore(int permits) {
+			super(permits);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+
+	}
+
+}
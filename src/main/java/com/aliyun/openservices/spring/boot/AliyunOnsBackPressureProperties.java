@@ -0,0 +1,54 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 消费背压配置参数
+ * 每个监听器独立计算：下游饱和（探针报告过载或消费失败率过高）时收缩该监听器的并发消费许可，消费线程最多等待 maxWaitMillis，
+ * 超时后稍后重新消费；下游恢复后逐步放开许可
+ */
+@ConfigurationProperties(prefix = AliyunOnsBackPressureProperties.PREFIX)
+@Data
+public class AliyunOnsBackPressureProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsBackPressureProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.back-pressure";
+
+	/**
+	 * 是否开启消费背压
+	 */
+	private boolean enabled = false;
+	/**
+	 * 每个监听器的最大并发消费许可数，建议与 consumeThreadNums 保持一致
+	 */
+	private int maxConcurrency = 64;
+	/**
+	 * 最小并发消费许可数，过载时许可数不会低于该值
+	 */
+	private int minConcurrency = 1;
+	/**
+	 * 每个评估周期内允许的最大消费失败率，超过则视为下游过载
+	 */
+	private double maxErrorRate = 0.5;
+	/**
+	 * 每个评估周期内计算失败率所需的最少消费次数
+	 */
+	private int minRequests = 20;
+	/**
+	 * 评估周期，单位：毫秒
+	 */
+	private long evaluateIntervalMillis = 1000;
+	/**
+	 * 下游健康时每个评估周期恢复的许可数
+	 */
+	private int recoverStep = 1;
+	/**
+	 * 消费线程等待许可的最长时间，超时后输出告警并稍后重新消费；实际值不超过 consumeTimeout 的一半，单位：毫秒
+	 */
+	private long maxWaitMillis = 60000;
+
+}
@@ -0,0 +1,155 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.exception.ONSClientException;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * claim-check：发送时将超过阈值的消息体转存到 {@link OnsBlobStore}，消息体替换为引用；
+ * 消费时消息中保留引用，处理方通过 {@link OnsMessageBody} 按需以流的方式读取，不读取则不产生任何 I/O。
+ * 转存的消息体按 retentionMillis 定期清理，开启 deleteAfterCommit 时消费成功后立即删除
+ */
+@Slf4j
+public class AliyunOnsClaimCheck {
+
+	/**
+	 * 消息体引用所在的用户属性
+	 */
+	public static final String PROPERTY_REFERENCE = "__ONS_CLAIM_CHECK";
+	/**
+	 * 原始消息体大小所在的用户属性
+	 */
+	public static final String PROPERTY_BODY_SIZE = "__ONS_CLAIM_CHECK_SIZE";
+
+	private final OnsBlobStore blobStore;
+
+	private final AliyunOnsClaimCheckProperties properties;
+
+	private final ScheduledExecutorService purger;
+
+	public AliyunOnsClaimCheck(OnsBlobStore blobStore, AliyunOnsClaimCheckProperties properties) {
+		this.blobStore = blobStore;
+		this.properties = properties;
+		if (properties.getRetentionMillis() > 0) {
+			this.purger = Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactoryBuilder().setNameFormat("ons-claim-check-purge-%d").setDaemon(true).build());
+			this.purger.scheduleWithFixedDelay(this::purge, properties.getPurgeIntervalMillis(), properties.getPurgeIntervalMillis(),
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.purger = null;
+		}
+	}
+
+	/*
+	 * 消息体超过阈值时转存，并将消息体替换为引用
+	 *
+	 * @param message
+	 */
+	public void checkIn(Message message) {
+		byte[] body = message.getBody();
+		if (body == null || body.length <= properties.getThresholdBytes() || isCheckedIn(message)) {
+			return;
+		}
+		try {
+			String reference = blobStore.put(message.getTopic(), message.getKey(), body);
+			message.putUserProperties(PROPERTY_REFERENCE, reference);
+			message.putUserProperties(PROPERTY_BODY_SIZE, String.valueOf(body.length));
+			// 消息体不能为空，这里放入引用本身
+			message.setBody(reference.getBytes(StandardCharsets.UTF_8));
+			log.debug("Message body of topic[{}] key[{}] checked in, size: {}, reference: {}", message.getTopic(), message.getKey(), body.length, reference);
+		} catch (IOException e) {
+			throw new ONSClientException("Failed to check in message body of topic " + message.getTopic(), e);
+		}
+	}
+
+	/*
+	 * 消息体句柄，读取时才打开转存的消息体
+	 *
+	 * @param message
+	 * @return
+	 */
+	public OnsMessageBody body(Message message) {
+		return new OnsMessageBody(this, message);
+	}
+
+	/*
+	 * 以流的方式读取原始消息体
+	 *
+	 * @param message
+	 * @return
+	 */
+	public InputStream openBody(Message message) throws IOException {
+		return this.body(message).openStream();
+	}
+
+	/*
+	 * 读取完整的原始消息体
+	 *
+	 * @param message
+	 * @return
+	 */
+	public byte[] readBody(Message message) throws IOException {
+		return this.body(message).getBytes();
+	}
+
+	/*
+	 * 消息消费成功后调用，开启 deleteAfterCommit 时删除转存的消息体
+	 *
+	 * @param reference 消息体引用，即用户属性 {@link #PROPERTY_REFERENCE}
+	 */
+	public void committed(String reference) {
+		if (reference == null || !properties.isDeleteAfterCommit()) {
+			return;
+		}
+		try {
+			blobStore.delete(reference);
+		} catch (IOException e) {
+			// 未删除的消息体由定期清理兜底
+			log.warn("Failed to delete claim-check body {}: {}", reference, e.getMessage());
+		}
+	}
+
+	/*
+	 * 清理超过保留时间的消息体
+	 */
+	protected void purge() {
+		try {
+			int purged = blobStore.purge(System.currentTimeMillis() - properties.getRetentionMillis());
+			if (purged > 0) {
+				log.info("Purged {} expired claim-check bodies", purged);
+			}
+		} catch (Exception e) {
+			log.error("Claim-check purge failed: {}", e.getMessage());
+		}
+	}
+
+	public void shutdown() {
+		if (purger != null) {
+			purger.shutdownNow();
+		}
+	}
+
+	public OnsBlobStore getBlobStore() {
+		return blobStore;
+	}
+
+	/*
+	 * 消息体是否已转存
+	 *
+	 * @param message
+	 * @return
+	 */
+	public static boolean isCheckedIn(Message message) {
+		return message.getUserProperties(PROPERTY_REFERENCE) != null;
+	}
+
+}
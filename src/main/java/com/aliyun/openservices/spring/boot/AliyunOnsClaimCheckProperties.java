@@ -0,0 +1,46 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 大消息体 claim-check 配置参数
+ * 消息体超过阈值时写入 {@link OnsBlobStore}，消息中只携带引用，消费端在处理前读回原始消息体
+ */
+@ConfigurationProperties(prefix = AliyunOnsClaimCheckProperties.PREFIX)
+@Data
+public class AliyunOnsClaimCheckProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsClaimCheckProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.claim-check";
+
+	/**
+	 * 是否开启 claim-check
+	 */
+	private boolean enabled = false;
+	/**
+	 * 消息体超过该大小（字节）时转存，默认 1 MiB
+	 */
+	private int thresholdBytes = 1024 * 1024;
+	/**
+	 * 未提供自定义 {@link OnsBlobStore} 时，本地文件存储的目录
+	 */
+	private String localDirectory = System.getProperty("java.io.tmpdir") + "/ons-claim-check";
+	/**
+	 * 转存消息体的保留时间，超过后定期清理，默认 3 天（与消息在 Broker 上的保留时间一致）；小于等于 0 时不清理，单位：毫秒
+	 */
+	private long retentionMillis = 3 * 24 * 60 * 60 * 1000L;
+	/**
+	 * 清理周期，单位：毫秒
+	 */
+	private long purgeIntervalMillis = 10 * 60 * 1000L;
+	/**
+	 * 消费成功后立即删除转存的消息体，仅适用于只有一个集群消费的 Group 订阅该 Topic 的场景，
+	 * 多个 Group 订阅或广播消费时其他消费方将读取不到消息体
+	 */
+	private boolean deleteAfterCommit = false;
+
+}
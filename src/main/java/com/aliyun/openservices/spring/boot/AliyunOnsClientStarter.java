@@ -0,0 +1,161 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.SmartLifecycle;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.spring.boot.annotation.ManagedStartup;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 上下文刷新完成后统一启动标注了 {@link ManagedStartup} 且尚未启动的客户端（通常是消费者），
+ * 开启 parallelStartup 时并行启动，并输出每个客户端的启动耗时；
+ * 未标注的客户端不会被启动，非延迟初始化的 Producer 在创建时即已启动，可在 @PostConstruct 等初始化回调中发送消息
+ */
+@Slf4j
+public class AliyunOnsClientStarter implements SmartLifecycle, ApplicationContextAware {
+
+	/*
+	 * 启动阶段，依赖已启动客户端的组件（如 {@link AliyunOnsDelayScheduler}）使用更大的 phase
+	 */
+	public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 1024;
+
+	private final AliyunOnsMqProperties onsMqProperties;
+
+	private ApplicationContext applicationContext;
+
+	/*
+	 * 启动耗时报告：beanName -> 启动耗时（毫秒）
+	 */
+	private volatile Map<String, Long> startupTimings = Collections.emptyMap();
+
+	private volatile boolean running = false;
+
+	public AliyunOnsClientStarter(AliyunOnsMqProperties onsMqProperties) {
+		this.onsMqProperties = onsMqProperties;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	public void start() {
+		Map<String, Admin> clients = new LinkedHashMap<>();
+		for (String beanName : applicationContext.getBeanNamesForAnnotation(ManagedStartup.class)) {
+			if (!applicationContext.isTypeMatch(beanName, Admin.class)) {
+				continue;
+			}
+			Admin client = applicationContext.getBean(beanName, Admin.class);
+			// 延迟启动的客户端在首次发送时启动；已启动的客户端不重复启动
+			if (client instanceof AbstractLazyAdmin || isStarted(client)) {
+				continue;
+			}
+			clients.put(beanName, client);
+		}
+		long begin = System.currentTimeMillis();
+		Map<String, Long> timings = onsMqProperties.isParallelStartup() && clients.size() > 1
+				? this.startParallel(clients) : this.startSequential(clients);
+		this.startupTimings = Collections.unmodifiableMap(timings);
+		this.running = true;
+		for (Map.Entry<String, Long> entry : timings.entrySet()) {
+			log.info("ONS client [{}] started in {} ms", entry.getKey(), entry.getValue());
+		}
+		log.info("{} ONS client(s) started in {} ms (parallel: {})", timings.size(), System.currentTimeMillis() - begin,
+				onsMqProperties.isParallelStartup());
+	}
+
+	protected Map<String, Long> startSequential(Map<String, Admin> clients) {
+		Map<String, Long> timings = new LinkedHashMap<>(clients.size());
+		for (Map.Entry<String, Admin> entry : clients.entrySet()) {
+			timings.put(entry.getKey(), this.startClient(entry.getValue()));
+		}
+		return timings;
+	}
+
+	protected Map<String, Long> startParallel(Map<String, Admin> clients) {
+		ExecutorService startupPool = Executors.newFixedThreadPool(clients.size(),
+				new ThreadFactoryBuilder().setNameFormat("ons-startup-%d").build());
+		try {
+			List<String> beanNames = new ArrayList<>(clients.keySet());
+			List<Callable<Long>> tasks = new ArrayList<>(clients.size());
+			for (Admin client : clients.values()) {
+				tasks.add(() -> this.startClient(client));
+			}
+			List<Future<Long>> futures = startupPool.invokeAll(tasks);
+			Map<String, Long> timings = new LinkedHashMap<>(clients.size());
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					timings.put(beanNames.get(i), futures.get(i).get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("ONS client [" + beanNames.get(i) + "] failed to start", e.getCause());
+				}
+			}
+			return timings;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while starting ONS clients", e);
+		} finally {
+			startupPool.shutdown();
+		}
+	}
+
+	protected long startClient(Admin client) {
+		long begin = System.currentTimeMillis();
+		client.start();
+		return System.currentTimeMillis() - begin;
+	}
+
+	/*
+	 * ProducerBean 等在未启动时调用 isStarted() 会抛出空指针异常，这里统一视为未启动
+	 */
+	protected boolean isStarted(Admin client) {
+		try {
+			return client.isStarted();
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * 获取启动耗时报告
+	 *
+	 * @return beanName -> 启动耗时（毫秒）
+	 */
+	public Map<String, Long> getStartupTimings() {
+		return startupTimings;
+	}
+
+	@Override
+	public void stop() {
+		// 客户端由各自 Bean 的 destroyMethod 负责关闭
+		this.running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		return PHASE;
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.Getter;
+
+/**
+ * 消费指标：按监听器（beanName）统计消费速率、处理耗时分位数、在途数量与最近消费时间
+ * 耗时使用 HdrHistogram {@link Recorder} 记录，消费线程写入无锁；内部按 intervalMillis 固定周期滚动区间直方图与速率，
+ * 读取只返回最近一个完整周期的结果，不改变任何状态，多个读取方（端点、健康检查、监控采集）互不影响
+ */
+public class AliyunOnsConsumeMetrics {
+
+	/*
+	 * 可记录的最大耗时：1 小时（微秒）
+	 */
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+	private final ConcurrentMap<String, ListenerMetrics> listeners = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService roller;
+
+	public AliyunOnsConsumeMetrics(long intervalMillis) {
+		this.roller = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("ons-consume-metrics-%d").setDaemon(true).build());
+		this.roller.scheduleAtFixedRate(this::roll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * 开始消费
+	 *
+	 * @param listener 监听器 beanName
+	 * @return 开始时间，结束时传入 {@link #end(String, long, boolean, int)}
+	 */
+	public long begin(String listener) {
+		this.listener(listener).inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/*
+	 * 结束消费
+	 *
+	 * @param listener 监听器 beanName
+	 * @param begin   {@link #begin(String)} 的返回值
+	 * @param success 是否消费成功
+	 * @param count   本次消费的消息数量
+	 */
+	public void end(String listener, long begin, boolean success, int count) {
+		ListenerMetrics metrics = this.listener(listener);
+		long micros = (System.nanoTime() - begin) / 1000;
+		metrics.latency.recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+		(success ? metrics.consumed : metrics.failed).add(count);
+		metrics.lastConsumedTimestamp = System.currentTimeMillis();
+		metrics.inFlight.decrementAndGet();
+	}
+
+	/*
+	 * 获取各监听器的指标快照：速率与耗时分位数为最近一个完整统计周期的值，累计数量、在途数量与最近消费时间为实时值
+	 *
+	 * @return 监听器 beanName -> 指标快照
+	 */
+	public Map<String, Snapshot> snapshot() {
+		Map<String, Snapshot> snapshots = new LinkedHashMap<>(listeners.size());
+		for (Map.Entry<String, ListenerMetrics> entry : listeners.entrySet()) {
+			snapshots.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(snapshots);
+	}
+
+	/*
+	 * 结束当前统计周期，仅由内部调度线程调用
+	 */
+	protected void roll() {
+		for (ListenerMetrics metrics : listeners.values()) {
+			metrics.roll();
+		}
+	}
+
+	public void shutdown() {
+		roller.shutdownNow();
+	}
+
+	private ListenerMetrics listener(String listener) {
+		ListenerMetrics metrics = listeners.get(listener);
+		return metrics != null ? metrics : listeners.computeIfAbsent(listener, key -> new ListenerMetrics());
+	}
+
+	private static final class ListenerMetrics {
+
+		private final LongAdder consumed = new LongAdder();
+		private final LongAdder failed = new LongAdder();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 2);
+		private volatile long lastConsumedTimestamp;
+
+		/*
+		 * 上个周期结束时的累计数量与时间，仅由调度线程读写
+		 */
+		private long lastTotal;
+		private long lastRollNanos = System.nanoTime();
+		private Histogram interval;
+
+		/*
+		 * 最近一个完整周期的统计结果
+		 */
+		private volatile Interval completed = Interval.EMPTY;
+
+		void roll() {
+			long now = System.nanoTime();
+			long total = consumed.sum() + failed.sum();
+			double seconds = Math.max(now - lastRollNanos, 1) / 1e9;
+			double messagesPerSecond = (total - lastTotal) / seconds;
+			this.lastTotal = total;
+			this.lastRollNanos = now;
+			this.interval = interval == null ? latency.getIntervalHistogram() : latency.getIntervalHistogram(interval);
+			this.completed = new Interval(messagesPerSecond, interval.getValueAtPercentile(50) / 1000d,
+					interval.getValueAtPercentile(90) / 1000d, interval.getValueAtPercentile(99) / 1000d,
+					interval.getValueAtPercentile(99.9) / 1000d, interval.getMaxValue() / 1000d);
+		}
+
+		Snapshot snapshot() {
+			Interval last = completed;
+			return new Snapshot(last.messagesPerSecond, consumed.sum(), failed.sum(), inFlight.get(), lastConsumedTimestamp,
+					last.p50, last.p90, last.p99, last.p999, last.max);
+		}
+
+	}
+
+	/**
+	 * 单个统计周期的速率与耗时分位数，耗时单位：毫秒
+	 */
+	private static final class Interval {
+
+		private static final Interval EMPTY = new Interval(0, 0, 0, 0, 0, 0);
+
+		private final double messagesPerSecond;
+		private final double p50;
+		private final double p90;
+		private final double p99;
+		private final double p999;
+		private final double max;
+
+		Interval(double messagesPerSecond, double p50, double p90, double p99, double p999, double max) {
+			this.messagesPerSecond = messagesPerSecond;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.max = max;
+		}
+
+	}
+
+	/**
+	 * 单个监听器的指标快照，耗时单位：毫秒
+	 */
+	@Getter
+	public static final class Snapshot {
+
+		private final double messagesPerSecond;
+		private final long consumed;
+		private final long failed;
+		private final int inFlight;
+		private final long lastConsumedTimestamp;
+		private final double p50;
+		private final double p90;
+		private final double p99;
+		private final double p999;
+		private final double max;
+
+		Snapshot(double messagesPerSecond, long consumed, long failed, int inFlight, long lastConsumedTimestamp,
+				double p50, double p90, double p99, double p999, double max) {
+			this.messagesPerSecond = messagesPerSecond;
+			this.consumed = consumed;
+			this.failed = failed;
+			this.inFlight = inFlight;
+			this.lastConsumedTimestamp = lastConsumedTimestamp;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.max = max;
+		}
+
+	}
+
+}
@@ -0,0 +1,321 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 消费看门狗：记录每个正在进行的消费的开始时间，定期检查超过软截止时间的消费
+ * 每个执行处理方的线程持有一个固定的槽位，开始与结束消费只是对自身槽位的 volatile 写，不加锁、不分配对象、线程之间没有竞争；
+ * 超时的消费只上报一次：采样调用栈、按监听器计数并发布 {@link OnsSlowConsumeEvent}。
+ * 开启 abandon 时处理方在看门狗的隔离线程池上执行，消费线程最多等待软截止时间，超时后取消（中断）处理方并直接返回稍后重试，
+ * 不再等待处理方结束；被放弃的处理方可能仍在执行，消息重新投递后需靠 apply() 幂等判断避免重复处理
+ */
+@Slf4j
+public class AliyunOnsConsumeWatchdog implements ApplicationEventPublisherAware {
+
+	/*
+	 * 槽位状态，保存在 stamp 的低 2 位，高位为消费序号
+	 */
+	private static final long IDLE = 0;
+	private static final long RUNNING = 1;
+	private static final long REPORTED = 2;
+	private static final long STATE_MASK = 3;
+	private static final int STATE_BITS = 2;
+
+	private static final AtomicLongFieldUpdater<Slot> STAMP_UPDATER = AtomicLongFieldUpdater.newUpdater(Slot.class, "stamp");
+
+	private final AliyunOnsWatchdogProperties properties;
+
+	private final Queue<Slot> slots = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<Slot> currentSlot = ThreadLocal.withInitial(this::register);
+
+	private final ConcurrentMap<String, LongAdder> slowCounts = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, LongAdder> abandonedCounts = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService scanner;
+
+	/*
+	 * 开启 abandon 时执行处理方的隔离线程池，不排队，线程耗尽时直接稍后重试
+	 */
+	private final ThreadPoolExecutor isolation;
+
+	private ApplicationEventPublisher eventPublisher;
+
+	public AliyunOnsConsumeWatchdog(AliyunOnsWatchdogProperties properties) {
+		this.properties = properties;
+		this.scanner = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("ons-watchdog-%d").setDaemon(true).build());
+		this.scanner.scheduleWithFixedDelay(this::scan, properties.getCheckIntervalMillis(), properties.getCheckIntervalMillis(),
+				TimeUnit.MILLISECONDS);
+		this.isolation = properties.isAbandon()
+				? new ThreadPoolExecutor(0, properties.getIsolationThreads(), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+						new ThreadFactoryBuilder().setNameFormat("ons-consume-isolated-%d").setDaemon(true).build())
+				: null;
+	}
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
+	/*
+	 * 处理方是否在隔离线程上执行，即是否开启 abandon
+	 */
+	public boolean isIsolated() {
+		return isolation != null;
+	}
+
+	/*
+	 * 在看门狗的监视下执行处理方
+	 *
+	 * @param listener           监听器名称
+	 * @param message            消息，批量消费时为批次中第一条消息
+	 * @param batchSize          消息数量
+	 * @param softDeadlineMillis 软截止时间，小于等于 0 时使用默认值
+	 * @param handler            处理方，开启 abandon 时在隔离线程上执行
+	 * @param abandoned          放弃本次消费（超时、隔离线程耗尽或消费线程被中断）时的返回值
+	 * @return 处理方的返回值
+	 */
+	public <T> T watch(String listener, Message message, int batchSize, long softDeadlineMillis, Callable<T> handler, T abandoned) {
+		long deadlineMillis = softDeadlineMillis > 0 ? softDeadlineMillis : properties.getSoftDeadlineMillis();
+		if (isolation == null) {
+			Slot slot = this.begin(listener, message, batchSize, deadlineMillis);
+			try {
+				return handler.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			} finally {
+				this.end(slot);
+			}
+		}
+		return this.isolate(listener, message, batchSize, deadlineMillis, handler, abandoned);
+	}
+
+	private <T> T isolate(String listener, Message message, int batchSize, long deadlineMillis, Callable<T> handler, T abandoned) {
+		long startNanos = System.nanoTime();
+		AtomicReference<Thread> worker = new AtomicReference<>();
+		Future<T> future;
+		try {
+			future = isolation.submit(() -> {
+				worker.set(Thread.currentThread());
+				Slot slot = this.begin(listener, message, batchSize, deadlineMillis);
+				try {
+					return handler.call();
+				} finally {
+					this.end(slot);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			log.warn("Consume watchdog isolation threads exhausted ({}), listener: {}, topic: {}, key: {} will be reconsumed",
+					properties.getIsolationThreads(), listener, message.getTopic(), message.getKey());
+			return abandoned;
+		}
+		try {
+			return future.get(deadlineMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			Thread thread = worker.get();
+			StackTraceElement[] stackTrace = thread == null ? new StackTraceElement[0] : this.sample(thread);
+			future.cancel(true);
+			this.counter(slowCounts, listener).increment();
+			this.counter(abandonedCounts, listener).increment();
+			this.report(new OnsSlowConsumeEvent(this, listener, message.getTopic(), message.getMsgID(), message.getKey(), batchSize,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), stackTrace, true));
+			return abandoned;
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return abandoned;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private Slot begin(String listener, Message message, int batchSize, long deadlineMillis) {
+		Slot slot = currentSlot.get();
+		long now = System.nanoTime();
+		slot.listener = listener;
+		slot.message = message;
+		slot.batchSize = batchSize;
+		slot.startNanos = now;
+		slot.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+		// volatile 写发布以上字段
+		slot.stamp = ((slot.stamp >>> STATE_BITS) + 1) << STATE_BITS | RUNNING;
+		return slot;
+	}
+
+	private void end(Slot slot) {
+		// 与 scan() 的 CAS 无需协调：序号已变化时扫描线程的 CAS 失败，不会上报下一次消费
+		slot.stamp = slot.stamp & ~STATE_MASK | IDLE;
+		slot.message = null;
+	}
+
+	/*
+	 * 按监听器（beanName）统计的慢消费次数
+	 */
+	public Map<String, Long> getSlowCounts() {
+		return sum(slowCounts);
+	}
+
+	/*
+	 * 按监听器（beanName）统计的放弃消费次数
+	 */
+	public Map<String, Long> getAbandonedCounts() {
+		return sum(abandonedCounts);
+	}
+
+	/*
+	 * 当前超过软截止时间仍在执行的处理方数量，包括已被放弃但仍在执行的处理方
+	 */
+	public int getOverdueCount() {
+		long now = System.nanoTime();
+		int overdue = 0;
+		for (Slot slot : slots) {
+			long state = slot.stamp & STATE_MASK;
+			if ((state == RUNNING || state == REPORTED) && now - slot.deadlineNanos >= 0) {
+				overdue++;
+			}
+		}
+		return overdue;
+	}
+
+	public void shutdown() {
+		scanner.shutdownNow();
+		if (isolation != null) {
+			isolation.shutdownNow();
+		}
+	}
+
+	void scan() {
+		long now = System.nanoTime();
+		for (Slot slot : slots) {
+			Thread thread = slot.thread.get();
+			if (thread == null) {
+				slots.remove(slot);
+				continue;
+			}
+			// 开启 abandon 时由等待的消费线程在截止时间上报
+			if (isolation != null) {
+				continue;
+			}
+			long stamp = slot.stamp;
+			if ((stamp & STATE_MASK) != RUNNING) {
+				continue;
+			}
+			// 读取 stamp 之后再读取其余字段；若期间已开始下一次消费，下面的 CAS 会因序号变化而失败
+			Message message = slot.message;
+			String listener = slot.listener;
+			int batchSize = slot.batchSize;
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - slot.startNanos);
+			if (now - slot.deadlineNanos < 0 || message == null) {
+				continue;
+			}
+			if (!STAMP_UPDATER.compareAndSet(slot, stamp, (stamp & ~STATE_MASK) | REPORTED)) {
+				continue;
+			}
+			StackTraceElement[] stackTrace = this.sample(thread);
+			this.counter(slowCounts, listener).increment();
+			this.report(new OnsSlowConsumeEvent(this, listener, message.getTopic(), message.getMsgID(), message.getKey(), batchSize,
+					elapsedMillis, stackTrace, false));
+		}
+	}
+	private void report(OnsSlowConsumeEvent event) {
+		StringBuilder stack = new StringBuilder();
+		for (StackTraceElement element : event.getStackTrace()) {
+			stack.append("\n\tat ").append(element);
+		}
+		log.warn("Slow consume detected, listener: {}, topic: {}, msgId: {}, key: {}, batchSize: {}, elapsed: {} ms, abandoned: {}{}",
+				event.getListener(), event.getTopic(), event.getMsgId(), event.getKey(), event.getBatchSize(), event.getElapsedMillis(),
+				event.isAbandoned(), stack);
+		if (eventPublisher != null) {
+			try {
+				eventPublisher.publishEvent(event);
+			} catch (RuntimeException e) {
+				log.warn("Failed to publish OnsSlowConsumeEvent: {}", e.getMessage());
+			}
+		}
+	}
+
+	private StackTraceElement[] sample(Thread thread) {
+		StackTraceElement[] stackTrace = thread.getStackTrace();
+		return stackTrace.length > properties.getStackDepth() ? Arrays.copyOf(stackTrace, properties.getStackDepth()) : stackTrace;
+	}
+
+	private Slot register() {
+		Slot slot = new Slot(Thread.currentThread());
+		slots.add(slot);
+		return slot;
+	}
+
+	private LongAdder counter(ConcurrentMap<String, LongAdder> counters, String listener) {
+		return counters.computeIfAbsent(listener, key -> new LongAdder());
+	}
+
+	private static Map<String, Long> sum(ConcurrentMap<String, LongAdder> counters) {
+		Map<String, Long> sums = new LinkedHashMap<>(counters.size());
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			sums.put(entry.getKey(), entry.getValue().sum());
+		}
+		return Collections.unmodifiableMap(sums);
+	}
+
+	/**
+	 * 执行处理方的线程的槽位，只由所属线程写入（stamp 除外）
+	 */
+	static final class Slot {
+
+		private final WeakReference<Thread> thread;
+
+		volatile long stamp;
+
+		private String listener;
+		private Message message;
+		private int batchSize;
+		private long startNanos;
+		private long deadlineNanos;
+
+		Slot(Thread thread) {
+			this.thread = new WeakReference<>(thread);
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 本地延时投递配置参数
+ * 延时小于阈值的延时/定时消息由本地时间轮到期后再发送，可在发送前取消；超过阈值的仍由 Broker 定时投递
+ */
+@ConfigurationProperties(prefix = AliyunOnsDelayProperties.PREFIX)
+@Data
+public class AliyunOnsDelayProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsDelayProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.delay";
+
+	/**
+	 * 是否开启本地延时投递
+	 */
+	private boolean enabled = false;
+	/**
+	 * 延时小于该值（毫秒）时本地投递
+	 */
+	private long localThresholdMillis = 5000;
+	/**
+	 * 时间轮 tick 时长（毫秒），即本地投递的精度
+	 */
+	private long tickMillis = 10;
+	/**
+	 * 时间轮槽位数，向上取整为 2 的幂
+	 */
+	private int ticksPerWheel = 512;
+	/**
+	 * 是否将未到期的消息持久化到本地磁盘，重启后恢复；未开启时关闭应用会将未到期的消息转交 Broker 定时投递
+	 */
+	private boolean persistent = false;
+	/**
+	 * 持久化目录
+	 */
+	private String directory = System.getProperty("java.io.tmpdir") + "/ons-delay";
+	/**
+	 * 本地投递发送失败后的最大重试次数，重试耗尽后发布 {@link OnsDelayedMessageFailedEvent}
+	 */
+	private int maxRetries = 3;
+	/**
+	 * 首次重试的退避时间（毫秒），之后每次翻倍
+	 */
+	private long retryBackoffMillis = 1000;
+
+}
@@ -0,0 +1,411 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.StringUtils;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 本地延时投递：延时小于阈值的消息进入 {@link HashedTimingWheel}，到期后提交到发送线程池发送
+ * 发送失败时按 retryBackoffMillis 指数退避重新放回时间轮，超过 maxRetries 后发布 {@link OnsDelayedMessageFailedEvent}；
+ * 发送线程池已满时放回时间轮下一个 tick 再提交，时间轮线程不执行发送。
+ * 开启持久化时每条未到期的消息对应目录下的一个文件，发送成功或取消后删除，应用重启后重新调度；
+ * 未开启持久化时，应用关闭前将未到期的消息转交 Broker 定时投递
+ */
+@Slf4j
+public class AliyunOnsDelayScheduler implements SmartLifecycle, ApplicationContextAware {
+
+	private static final String SUFFIX = ".delay";
+
+	private static final int FORMAT_VERSION = 1;
+
+	private final AliyunOnsDelayProperties delayProperties;
+
+	private final Executor executor;
+
+	private final HashedTimingWheel timingWheel;
+
+	/*
+	 * 持久化目录，未开启持久化时为 null
+	 */
+	private final Path directory;
+
+	/*
+	 * producer -> beanName，持久化时记录，恢复时按 beanName 找回 producer
+	 */
+	private final ConcurrentMap<Producer, String> producerNames = new ConcurrentHashMap<>();
+
+	private final LongAdder retried = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private ApplicationContext applicationContext;
+
+	private volatile boolean running = false;
+
+	public AliyunOnsDelayScheduler(AliyunOnsDelayProperties delayProperties, Executor executor) {
+		this.delayProperties = delayProperties;
+		this.executor = executor;
+		this.timingWheel = new HashedTimingWheel(new ThreadFactoryBuilder().setNameFormat("ons-timer-%d").setDaemon(true).build(),
+				delayProperties.getTickMillis(), TimeUnit.MILLISECONDS, delayProperties.getTicksPerWheel());
+		this.directory = delayProperties.isPersistent() ? Paths.get(delayProperties.getDirectory()).toAbsolutePath().normalize() : null;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+		this.applicationContext = applicationContext;
+	}
+
+	/*
+	 * 投递时间是否在本地投递阈值内
+	 *
+	 * @param deliverTime 投递时间（毫秒时间戳）
+	 */
+	public boolean isLocal(long deliverTime) {
+		return running && deliverTime - System.currentTimeMillis() < delayProperties.getLocalThresholdMillis();
+	}
+
+	/*
+	 * 本地调度延时消息
+	 *
+	 * @param producer
+	 * @param message
+	 * @param deliverTime 投递时间（毫秒时间戳）
+	 * @return 可取消的句柄
+	 * @throws IOException 开启持久化时写入失败
+	 */
+	public OnsDelayedMessage schedule(Producer producer, Message message, long deliverTime) throws IOException {
+		OnsDelayedMessage delayed = new OnsDelayedMessage(UUID.randomUUID().toString(), producer, message, deliverTime, this);
+		if (directory != null) {
+			this.persist(delayed);
+		}
+		this.enqueue(delayed);
+		return delayed;
+	}
+
+	/*
+	 * 本地等待投递的消息数量
+	 */
+	public int getPendingCount() {
+		return timingWheel.getPendingCount();
+	}
+
+	/*
+	 * 发送失败后重新放回时间轮的次数
+	 */
+	public long getRetriedCount() {
+		return retried.sum();
+	}
+
+	/*
+	 * 重试耗尽后最终发送失败的消息数量
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	private void enqueue(OnsDelayedMessage delayed) {
+		delayed.timeout = timingWheel.newTimeout(new Expiry(delayed, false), delayed.getDeliverTime() - System.currentTimeMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * 已出队的消息重新放回时间轮，到期后直接提交发送
+	 */
+	private void redispatch(OnsDelayedMessage delayed, long delayMillis) {
+		Expiry expiry = new Expiry(delayed, true);
+		try {
+			delayed.timeout = timingWheel.newTimeout(expiry, delayMillis, TimeUnit.MILLISECONDS);
+		} catch (IllegalStateException e) {
+			// 时间轮已停止
+			this.handOff(expiry);
+		}
+	}
+
+	/*
+	 * 到期：时间轮线程只做提交，发送在发送线程池中执行；线程池已满时放回时间轮，下一个 tick 再提交
+	 */
+	private void expire(OnsDelayedMessage delayed, boolean redispatch) {
+		if (!redispatch && !delayed.markDispatched()) {
+			return;
+		}
+		try {
+			executor.execute(() -> this.send(delayed));
+		} catch (RejectedExecutionException e) {
+			this.redispatch(delayed, delayProperties.getTickMillis());
+		}
+	}
+
+	private void send(OnsDelayedMessage delayed) {
+		Message message = delayed.getMessage();
+		try {
+			SendResult sendResult = delayed.getProducer().send(message);
+			log.info(" Send delayed mq message success. Topic is:" + message.getTopic() + " msgId is: " + sendResult.getMessageId());
+			this.delete(delayed);
+		} catch (Exception e) {
+			int attempts = delayed.failedAttempt();
+			if (running && attempts <= delayProperties.getMaxRetries()) {
+				long backoff = delayProperties.getRetryBackoffMillis() << Math.min(attempts - 1, 16);
+				log.warn(" Send delayed mq message failed, retry {} in {} ms. Topic is: {}, key: {}, error : {}", attempts, backoff,
+						message.getTopic(), message.getKey(), e.getMessage());
+				retried.increment();
+				this.redispatch(delayed, backoff);
+				return;
+			}
+			this.failed(delayed, e);
+		}
+	}
+
+	/*
+	 * 重试耗尽：开启持久化时保留文件，重启后重新发送
+	 */
+	private void failed(OnsDelayedMessage delayed, Exception cause) {
+		Message message = delayed.getMessage();
+		delayed.markFailed();
+		failed.increment();
+		log.error(" Send delayed mq message failed after {} attempt(s). Topic is: {}, key: {}, error : {}", delayed.getAttempts(),
+				message.getTopic(), message.getKey(), cause.getMessage());
+		if (applicationContext == null) {
+			return;
+		}
+		try {
+			applicationContext.publishEvent(new OnsDelayedMessageFailedEvent(this, delayed, cause));
+		} catch (Exception e) {
+			log.warn("Failed to publish delayed message failure event: {}", e.getMessage());
+		}
+	}
+
+	void cancelled(OnsDelayedMessage delayed) {
+		this.delete(delayed);
+	}
+
+	@Override
+	public void start() {
+		timingWheel.start();
+		this.running = true;
+		if (directory != null) {
+			this.recover();
+		}
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		timingWheel.stop(timeout -> this.handOff((Expiry) timeout.getTask()));
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/*
+	 * 在 {@link AliyunOnsClientStarter} 启动 Producer 之后启动，在其之前停止
+	 */
+	@Override
+	public int getPhase() {
+		return AliyunOnsClientStarter.PHASE + 1;
+	}
+
+	/*
+	 * 关闭时尚未到期或等待重试的消息：开启持久化时保留文件待重启后恢复，否则转交 Broker 定时投递
+	 */
+	private void handOff(Expiry expiry) {
+		OnsDelayedMessage delayed = expiry.delayed;
+		if (directory != null || (!expiry.redispatch && !delayed.markDispatched())) {
+			return;
+		}
+		Message message = delayed.getMessage();
+		try {
+			message.setStartDeliverTime(delayed.getDeliverTime());
+			delayed.getProducer().send(message);
+		} catch (Exception e) {
+			log.error(" Hand off delayed mq message failed. Topic is: {}, key: {}, error : {}", message.getTopic(), message.getKey(), e.getMessage());
+		}
+	}
+
+	private void recover() {
+		int recovered = 0;
+		try {
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+				for (Path file : files) {
+					if (this.recover(file)) {
+						recovered++;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to recover delayed messages from " + directory, e);
+		}
+		if (recovered > 0) {
+			log.info("{} delayed message(s) recovered from {}", recovered, directory);
+		}
+	}
+
+	private boolean recover(Path file) throws IOException {
+		String fileName = file.getFileName().toString();
+		String id = fileName.substring(0, fileName.length() - SUFFIX.length());
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			int version = in.readInt();
+			if (version != FORMAT_VERSION) {
+				log.warn("Unsupported delayed message file {} (version {}), skipped", file, version);
+				return false;
+			}
+			long deliverTime = in.readLong();
+			String producerName = readString(in);
+			Message message = new Message();
+			message.setTopic(readString(in));
+			message.setTag(readString(in));
+			message.setKey(readString(in));
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				message.putUserProperties(readString(in), readString(in));
+			}
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+			message.setBody(body);
+			Producer producer = this.resolveProducer(producerName);
+			if (producer == null) {
+				log.warn("No producer named [{}] for delayed message file {}, skipped", producerName, file);
+				return false;
+			}
+			this.enqueue(new OnsDelayedMessage(id, producer, message, deliverTime, this));
+			return true;
+		}
+	}
+
+	private void persist(OnsDelayedMessage delayed) throws IOException {
+		Files.createDirectories(directory);
+		// 先写临时文件再原子重命名，避免恢复时读到写了一半的文件
+		Path temp = Files.createTempFile(directory, ".", ".tmp");
+		try {
+			this.write(temp, delayed);
+			Files.move(temp, this.file(delayed), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	private void write(Path temp, OnsDelayedMessage delayed) throws IOException {
+		Message message = delayed.getMessage();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(delayed.getDeliverTime());
+			writeString(out, this.producerName(delayed.getProducer()));
+			writeString(out, message.getTopic());
+			writeString(out, message.getTag());
+			writeString(out, message.getKey());
+			Properties userProperties = message.getUserProperties();
+			if (userProperties == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(userProperties.size());
+				for (String name : userProperties.stringPropertyNames()) {
+					writeString(out, name);
+					writeString(out, userProperties.getProperty(name));
+				}
+			}
+			out.writeInt(message.getBody().length);
+			out.write(message.getBody());
+		}
+	}
+
+	private void delete(OnsDelayedMessage delayed) {
+		if (directory == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(this.file(delayed));
+		} catch (IOException e) {
+			log.warn("Failed to delete delayed message file of [{}]: {}", delayed.getId(), e.getMessage());
+		}
+	}
+
+	private Path file(OnsDelayedMessage delayed) {
+		return directory.resolve(delayed.getId() + SUFFIX);
+	}
+
+	private String producerName(Producer producer) {
+		return producerNames.computeIfAbsent(producer, key -> {
+			for (Map.Entry<String, Producer> entry : applicationContext.getBeansOfType(Producer.class).entrySet()) {
+				if (entry.getValue() == key) {
+					return entry.getKey();
+				}
+			}
+			return "";
+		});
+	}
+
+	/*
+	 * 记录的 beanName 不存在时（如 producer 不是 Bean）使用唯一的 Producer Bean
+	 */
+	private Producer resolveProducer(String producerName) {
+		if (StringUtils.hasText(producerName) && applicationContext.containsBean(producerName)) {
+			return applicationContext.getBean(producerName, Producer.class);
+		}
+		return applicationContext.getBeanProvider(Producer.class).getIfUnique();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private final class Expiry implements Runnable {
+
+		private final OnsDelayedMessage delayed;
+
+		/*
+		 * 重试或线程池已满后重新放回时间轮，消息已标记为已发送
+		 */
+		private final boolean redispatch;
+
+		Expiry(OnsDelayedMessage delayed, boolean redispatch) {
+			this.delayed = delayed;
+			this.redispatch = redispatch;
+		}
+
+		@Override
+		public void run() {
+			expire(delayed, redispatch);
+		}
+
+	}
+
+}
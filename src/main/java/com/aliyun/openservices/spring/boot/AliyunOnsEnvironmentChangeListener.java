@@ -0,0 +1,28 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * 配置中心推送或 /actuator/refresh 触发 {@link EnvironmentChangeEvent} 时，alibaba.cloud.ons 下的配置有变化则重新绑定并刷新
+ */
+public class AliyunOnsEnvironmentChangeListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+	private final AliyunOnsRefresher refresher;
+
+	private final Environment environment;
+
+	public AliyunOnsEnvironmentChangeListener(AliyunOnsRefresher refresher, Environment environment) {
+		this.refresher = refresher;
+		this.environment = environment;
+	}
+
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		if (event.getKeys().stream().anyMatch(key -> key.startsWith(AliyunOnsMqProperties.PREFIX + "."))) {
+			refresher.rebind(environment);
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 消息 Key 生成配置参数
+ */
+@ConfigurationProperties(prefix = AliyunOnsKeyGeneratorProperties.PREFIX)
+@Data
+public class AliyunOnsKeyGeneratorProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsKeyGeneratorProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.key-generator";
+
+	/**
+	 * 是否为没有 Key 的消息自动生成 Key，同时需要指定 nodeId
+	 */
+	private boolean enabled = true;
+	/**
+	 * 节点 ID（0 ~ 1023），同一时刻运行的实例必须不同；未指定时不自动生成 Key
+	 */
+	private Integer nodeId;
+
+}
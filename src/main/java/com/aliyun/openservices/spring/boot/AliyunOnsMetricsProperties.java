@@ -0,0 +1,29 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 消费指标配置参数
+ * 消费速率与耗时分位数按固定周期滚动统计，读取时返回最近一个完整周期的数据
+ */
+@ConfigurationProperties(prefix = AliyunOnsMetricsProperties.PREFIX)
+@Data
+public class AliyunOnsMetricsProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsMetricsProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.metrics";
+
+	/**
+	 * 是否开启消费指标采集
+	 */
+	private boolean enabled = true;
+	/**
+	 * 统计周期，单位：毫秒
+	 */
+	private long intervalMillis = 10000;
+
+}
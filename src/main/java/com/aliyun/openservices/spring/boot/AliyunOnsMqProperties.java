@@ -77,6 +77,18 @@ public class AliyunOnsMqProperties {
 	 */
 	private String instanceName;
 
+	// -------startup------------------------------------------ 
+
+	/**
+	 * 生产者是否延迟初始化：开启后，Producer/OrderProducer 在首次发送消息时才启动
+	 */
+	private boolean lazyInit = false;
+
+	/**
+	 * 是否在上下文刷新完成时并行启动标注了 {@link com.aliyun.openservices.spring.boot.annotation.ManagedStartup} 且尚未启动的客户端
+	 */
+	private boolean parallelStartup = true;
+
 	// -------producer------------------------------------------ 
 
     /**
@@ -1,27 +1,22 @@
 package com.aliyun.openservices.spring.boot;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.aliyun.openservices.shade.org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.core.NestedExceptionUtils;
-import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.Assert;
-import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 import com.aliyun.openservices.ons.api.Message;
 import com.aliyun.openservices.ons.api.MessageListener;
@@ -34,15 +29,11 @@ import com.aliyun.openservices.ons.api.bean.Subscription;
 import com.aliyun.openservices.ons.api.order.MessageOrderListener;
 import com.aliyun.openservices.ons.api.order.OrderProducer;
 import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.aliyun.openservices.spring.boot.annotation.BatchMessageConsumer;
-import com.aliyun.openservices.spring.boot.annotation.MessageConsumer;
-import com.aliyun.openservices.spring.boot.annotation.MessageOrderConsumer;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.StringUtils;
 
 @Slf4j
-public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
+public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor, SmartInitializingSingleton {
 
 	/*
 	 * 上下文对象实例
@@ -53,6 +44,38 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 
 	private CompletionService<String> completionThreadPool;
 
+	private ThreadPoolExecutor threadPool;
+
+	/*
+	 * 多线程发送被拒绝的次数
+	 */
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/*
+	 * 订阅关系注册表
+	 */
+	private final AliyunOnsSubscriptionRegistry subscriptionRegistry = new AliyunOnsSubscriptionRegistry();
+
+	/*
+	 * 大消息体 claim-check，未开启时为 null
+	 */
+	private AliyunOnsClaimCheck claimCheck;
+
+	/*
+	 * 链路追踪，未开启时为 null
+	 */
+	private OnsTracing tracing;
+
+	/*
+	 * 本地延时投递，未开启时为 null
+	 */
+	private AliyunOnsDelayScheduler delayScheduler;
+
+	/*
+	 * 消息 Key 生成器，未开启时为 null
+	 */
+	private OnsKeyGenerator keyGenerator;
+
 	private static SendCallback SEND_CALLBACK = new SendCallback() {
 
 		@Override
@@ -78,14 +101,22 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 		 * threadFactory   创建线程的工厂类
 		 * handler         拒绝策略类,当线程池数量达到上线并且workQueue队列长度达到上限时就需要对到来的任务做拒绝处理
 		 */
-		ExecutorService threadPool = new ThreadPoolExecutor(
+		this.threadPool = new ThreadPoolExecutor(
 				poolProperties.getCorePoolSize(),
 				poolProperties.getMaximumPoolSize(),
 				poolProperties.getKeepAliveTime(),
 				poolProperties.getUnit(),
-		        new LinkedBlockingQueue<>(poolProperties.getMaximumWorkQueue()),
+		        new ResizableLinkedBlockingQueue<>(poolProperties.getMaximumWorkQueue()),
 		        namedThreadFactory,
-		        new ThreadPoolExecutor.AbortPolicy()
+		        new ThreadPoolExecutor.AbortPolicy() {
+
+					@Override
+					public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+						rejectedCount.increment();
+						super.rejectedExecution(r, executor);
+					}
+
+				}
 		);
 		this.completionThreadPool = new ExecutorCompletionService<>(threadPool);
 	}
@@ -93,7 +124,25 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	@Override
 	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
 		this.applicationContext = beanFactory;
+		this.subscriptionRegistry.setBeanFactory(beanFactory);
+	}
 
+	@Override
+	public void afterSingletonsInstantiated() {
+		this.subscriptionRegistry.afterSingletonsInstantiated();
+		// BeanFactoryPostProcessor 不会被自动注入，这里从上下文获取可选组件
+		if (this.claimCheck == null) {
+			this.claimCheck = applicationContext.getBeanProvider(AliyunOnsClaimCheck.class).getIfAvailable();
+		}
+		if (this.tracing == null) {
+			this.tracing = applicationContext.getBeanProvider(OnsTracing.class).getIfAvailable();
+		}
+		if (this.delayScheduler == null) {
+			this.delayScheduler = applicationContext.getBeanProvider(AliyunOnsDelayScheduler.class).getIfAvailable();
+		}
+		if (this.keyGenerator == null) {
+			this.keyGenerator = applicationContext.getBeanProvider(OnsKeyGenerator.class).getIfAvailable();
+		}
 	}
 
 	/*
@@ -105,53 +154,70 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 		return applicationContext;
 	}
 
+	public AliyunOnsSubscriptionRegistry getSubscriptionRegistry() {
+		return subscriptionRegistry;
+	}
+
+	public void setClaimCheck(AliyunOnsClaimCheck claimCheck) {
+		this.claimCheck = claimCheck;
+	}
+
+	public void setTracing(OnsTracing tracing) {
+		this.tracing = tracing;
+	}
+
+	public void setDelayScheduler(AliyunOnsDelayScheduler delayScheduler) {
+		this.delayScheduler = delayScheduler;
+	}
+
+	public void setKeyGenerator(OnsKeyGenerator keyGenerator) {
+		this.keyGenerator = keyGenerator;
+	}
+
+	/*
+	 * 多线程发送线程池
+	 */
+	public ThreadPoolExecutor getThreadPool() {
+		return threadPool;
+	}
+
+	/*
+	 * 多线程发送被拒绝的次数
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	/*
+	 * 运行期调整多线程发送线程池，已入队的发送任务不会被丢弃
+	 *
+	 * @param poolProperties
+	 */
+	public synchronized void resizePool(AliyunOnsMqPoolProperties poolProperties) {
+		int corePoolSize = poolProperties.getCorePoolSize();
+		int maximumPoolSize = poolProperties.getMaximumPoolSize();
+		Assert.isTrue(corePoolSize > 0 && maximumPoolSize >= corePoolSize, "invalid pool size, core: " + corePoolSize + ", max: " + maximumPoolSize);
+		// 先调整会放宽约束的一侧，避免出现 core > max 的中间状态
+		if (maximumPoolSize >= threadPool.getMaximumPoolSize()) {
+			threadPool.setMaximumPoolSize(maximumPoolSize);
+			threadPool.setCorePoolSize(corePoolSize);
+		} else {
+			threadPool.setCorePoolSize(corePoolSize);
+			threadPool.setMaximumPoolSize(maximumPoolSize);
+		}
+		threadPool.setKeepAliveTime(poolProperties.getKeepAliveTime(), poolProperties.getUnit());
+		((ResizableLinkedBlockingQueue<Runnable>) threadPool.getQueue()).setCapacity(poolProperties.getMaximumWorkQueue());
+		log.info("ons-pool resized, corePoolSize: {}, maximumPoolSize: {}, maximumWorkQueue: {}", corePoolSize, maximumPoolSize,
+				poolProperties.getMaximumWorkQueue());
+	}
+
 	/*
 	 * 获取所有实现的消费者监听
 	 * @return subscriptionTable
 	 * @throws BeansException
 	 */
 	public Map<Subscription, MessageListener> getSubscriptionTable(String... arg) throws BeansException {
-		try {
-			String[] messageConsumerBeans = getApplicationContext().getBeanNamesForAnnotation(MessageConsumer.class);
-			Map<Subscription, MessageListener> subscriptionTable = new HashMap<>(messageConsumerBeans.length);
-			Subscription subscription;
-			List<String> beanNames = Objects.isNull(arg) ? new ArrayList<String>() : Arrays.asList(arg);
-			for (String beanName : messageConsumerBeans) {
-
-				// 没有指定具体名称或在指定名称内
-				if ( CollectionUtils.isEmpty(beanNames) || beanNames.contains(beanName)) {
-
-					Class<?> clazz = applicationContext.getType(beanName);
-					MessageConsumer messageConsumer = AnnotationUtils.findAnnotation(clazz, MessageConsumer.class);
-
-					// 绑定监听的topic
-					subscription = new Subscription();
-					subscription.setTopic(messageConsumer.topic());
-					// 绑定要监听的tag，多个tag用 || 隔开
-					subscription.setExpression(messageConsumer.tag());
-
-					// 扩展接口
-					Object messageListener = applicationContext.getBean(beanName);
-					if(messageListener instanceof AbstractMessageListener){
-						AbstractMessageListener aMessageListener = (AbstractMessageListener) messageListener;
-						String expression = aMessageListener.expression();
-						if(StringUtils.hasText(expression)){
-							subscription.setExpression(expression);
-						}
-					}
-
-					subscriptionTable.put(subscription, (MessageListener) messageListener);
-					log.info("Topic[{}] and tag[{}] subscribed!", messageConsumer.topic(), messageConsumer.tag());
-
-				}
-
-			}
-			log.info("Subscription Table : {}!", subscriptionTable);
-			return subscriptionTable;
-		} catch (Exception e) {
-			log.error(e.getMessage());
-		}
-		return new HashMap<>(0);
+		return subscriptionRegistry.getSubscriptionTable(arg);
 	}
 
 	/*
@@ -160,45 +226,7 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @throws BeansException
 	 */
 	public Map<Subscription, BatchMessageListener> getBatchSubscriptionTable(String... arg) throws BeansException {
-		try {
-			String[] messageConsumerBeans = getApplicationContext().getBeanNamesForAnnotation(BatchMessageConsumer.class);
-			Map<Subscription, BatchMessageListener> subscriptionTable = new HashMap<>(messageConsumerBeans.length);
-			Subscription subscription;
-			List<String> beanNames = Objects.isNull(arg) ? new ArrayList<String>() : Arrays.asList(arg);
-			for (String beanName : messageConsumerBeans) {
-
-				// 没有指定具体名称或在指定名称内
-				if ( CollectionUtils.isEmpty(beanNames) || beanNames.contains(beanName)) {
-
-					Class<?> clazz = applicationContext.getType(beanName);
-					BatchMessageConsumer messageConsumer = AnnotationUtils.findAnnotation(clazz, BatchMessageConsumer.class);
-
-					// 绑定监听的topic
-					subscription = new Subscription();
-					subscription.setTopic(messageConsumer.topic());
-					// 绑定要监听的tag，多个tag用 || 隔开
-					subscription.setExpression(messageConsumer.subExpression());
-					// 扩展接口
-					Object messageListener = applicationContext.getBean(beanName);
-					if(messageListener instanceof AbstractBatchMessageListener){
-						AbstractBatchMessageListener batchMessageListener = (AbstractBatchMessageListener) messageListener;
-						String expression = batchMessageListener.expression();
-						if(StringUtils.hasText(expression)){
-							subscription.setExpression(expression);
-						}
-					}
-					subscriptionTable.put(subscription, (BatchMessageListener) messageListener);
-					log.info("Topic[{}] and subExpression[{}] subscribed!", messageConsumer.topic(), messageConsumer.subExpression());
-
-				}
-
-			}
-			log.info("Subscription Table : {}!", subscriptionTable);
-			return subscriptionTable;
-		} catch (Exception e) {
-			log.error(e.getMessage());
-		}
-		return new HashMap<>();
+		return subscriptionRegistry.getBatchSubscriptionTable(arg);
 	}
 
 	/*
@@ -206,48 +234,52 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @return {@link java.util.Map<com.aliyun.openservices.ons.api.bean.Subscription,com.aliyun.openservices.ons.api.order.MessageOrderListener>}
 	 */
 	public Map<Subscription, MessageOrderListener> getOrderSubscriptionTable(String... arg) throws BeansException {
-		try {
-
-			String[] messageConsumerBeans = getApplicationContext().getBeanNamesForAnnotation(MessageOrderConsumer.class);
-			Map<Subscription, MessageOrderListener> subscriptionTable = new HashMap<>(messageConsumerBeans.length);
-			Subscription subscription;
-			List<String> beanNames = Objects.isNull(arg) ? new ArrayList<String>() : Arrays.asList(arg);
-			for (String beanName : messageConsumerBeans) {
-
-				// 没有指定具体名称或在指定名称内
-				if (CollectionUtils.isEmpty(beanNames) || beanNames.contains(beanName)) {
-
-					Class<?> clazz = applicationContext.getType(beanName);
-					MessageOrderConsumer messageConsumer = AnnotationUtils.findAnnotation(clazz, MessageOrderConsumer.class);
-
-					// 绑定监听的topic
-					subscription = new Subscription();
-					subscription.setTopic(messageConsumer.topic());
-					// 绑定要监听的tag，多个tag用 || 隔开
-					subscription.setExpression(messageConsumer.tag());
-
-					// 扩展接口
-					Object messageListener = applicationContext.getBean(beanName);
-					if(messageListener instanceof AbstractMessageOrderListener){
-						AbstractMessageOrderListener messageOrderListener = (AbstractMessageOrderListener) messageListener;
-						String expression = messageOrderListener.expression();
-						if(StringUtils.hasText(expression)){
-							subscription.setExpression(expression);
-						}
-					}
+		return subscriptionRegistry.getOrderSubscriptionTable(arg);
+	}
 
-					subscriptionTable.put(subscription, (MessageOrderListener) messageListener);
-					log.info("Topic[{}] and tag[{}] subscribed!", messageConsumer.topic(), messageConsumer.tag());
+	/*
+	 * 发送前处理：补全消息 Key、超过阈值的消息体转存（claim-check）、注入链路追踪上下文
+	 *
+	 * @param message
+	 */
+	public void beforeSend(Message message) {
+		this.ensureKey(message);
+		if (claimCheck != null) {
+			claimCheck.checkIn(message);
+		}
+		if (tracing != null) {
+			tracing.inject(message);
+		}
+	}
 
-				}
+	/*
+	 * 在调用线程捕获追踪上下文，task 在发送线程池或 Reactor Scheduler 上执行时恢复，发送 Span 延续调用方的链路
+	 *
+	 * @param task 包含 {@link #beforeSend(Message)} 的发送任务
+	 * @return 未开启链路追踪时原样返回
+	 */
+	public <T> Callable<T> propagate(Callable<T> task) {
+		return tracing == null ? task : tracing.wrap(task);
+	}
 
-			}
-			log.info("Subscription Table : {}!", subscriptionTable);
-			return subscriptionTable;
-		} catch (Exception e) {
-			log.error(e.getMessage());
+	/*
+	 * 消息没有 Key 时使用 {@link OnsKeyGenerator} 生成
+	 *
+	 * @param message
+	 */
+	private void ensureKey(Message message) {
+		if (keyGenerator != null && !StringUtils.hasText(message.getKey())) {
+			message.setKey(keyGenerator.generateKey(message));
 		}
-		return new HashMap<>(0);
+	}
+
+	/*
+	 * 没有 {@link OnsKeyGenerator} 时消息必须指定 Key
+	 *
+	 * @param message
+	 */
+	private void assertKey(Message message) {
+		Assert.isTrue(keyGenerator != null || StringUtils.hasText(message.getKey()), "message key must not be empty ");
 	}
 
 	/*
@@ -259,9 +291,10 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @return
 	 */
 	public boolean sendOrderMes(OrderProducer producer, Message message, String shardingKey) {
-		// 发信息必须给一个唯一标识key用于做幂等
-		Assert.hasText(message.getKey(), "message key must not be empty ");
+		// 发信息必须给一个唯一标识key用于做幂等，未指定时由 beforeSend 自动生成
+		this.assertKey(message);
 		try {
+			this.beforeSend(message);
 			SendResult sendResult = producer.send(message, shardingKey);
 			log.info(" Send mq message success. Topic is:" + message.getTopic() + " msgId is: "
 					+ sendResult.getMessageId());
@@ -280,9 +313,10 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @return
 	 */
 	public boolean sendSyncMes(Producer producer, Message message) {
-		// 发信息必须给一个唯一标识key用于做幂等
-		Assert.hasText(message.getKey(), "message key must not be empty ");
+		// 发信息必须给一个唯一标识key用于做幂等，未指定时由 beforeSend 自动生成
+		this.assertKey(message);
 		try {
+			this.beforeSend(message);
 			SendResult sendResult = producer.send(message);
 			log.info(" Send mq message success. Topic is:" + message.getTopic() + " msgId is: "
 					+ sendResult.getMessageId());
@@ -302,6 +336,7 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 */
 	public boolean sendAsyncMes(Producer producer, Message message) {
 		try {
+			this.beforeSend(message);
 			producer.sendAsync(message, SEND_CALLBACK);
 			log.info("send message async. topic=" + message.getTopic() + ", msgId=" + message.getMsgID());
 			return true;
@@ -320,6 +355,7 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 */
 	public void sendAsyncMes(Producer producer, Message message, SendCallback sendCallback) {
 		try {
+			this.beforeSend(message);
 			producer.sendAsync(message, sendCallback);
 			// 在 callback 返回之前即可取得 msgId。
 			log.info("send message async. topic=" + message.getTopic() + ", msgId=" + message.getMsgID());
@@ -337,6 +373,7 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 */
 	public boolean sendOneWayMes(Producer producer, Message message) {
 		try {
+			this.beforeSend(message);
 			// 由于在 oneway
 			// 方式发送消息时没有请求应答处理，一旦出现消息发送失败，则会因为没有重试而导致数据丢失。若数据不可丢，建议选用可靠同步或可靠异步发送方式。
 			producer.sendOneway(message);
@@ -355,8 +392,9 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @param message
 	 */
 	public void sendMultiMes(final Producer producer, final Message message) {
-		completionThreadPool.submit(() -> {
+		completionThreadPool.submit(this.propagate(() -> {
 			try {
+				this.beforeSend(message);
 				SendResult sendResult = producer.send(message);
 				// 同步发送消息，只要不抛异常就是成功
 				if (sendResult != null) {
@@ -370,7 +408,7 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 				log.error(" Send mq message failed. Topic is: {}, msgId: {}, error : {}", message.getTopic(), message.getMsgID(), e.getMessage());
 			}
 			return "";
-		});
+		}));
 	}
 
 	/*
@@ -379,22 +417,10 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @param producer
 	 * @param message
 	 * @param delayTime 延迟时间
-	 * @return
+	 * @return 本地投递时返回 true 表示已受理，发送失败按退避重试，重试耗尽后发布 {@link OnsDelayedMessageFailedEvent}
 	 */
 	public boolean sendDelayMes(Producer producer, Message message, long delayTime) {
-		// 发信息必须给一个唯一标识key用于做幂等
-		Assert.hasText(message.getKey(), "message key must not be empty ");
-		try {
-			long executeTime = System.currentTimeMillis() + delayTime;
-			message.setStartDeliverTime(executeTime);
-			SendResult sendResult = producer.send(message);
-			log.info(" Send mq message success. Topic is:" + message.getTopic() + " msgId is: "
-					+ sendResult.getMessageId());
-			return true;
-		} catch (Exception e) {
-			log.error(" Send mq message failed. Topic is: {}, msgId: {}, error : {}", message.getTopic(), message.getMsgID(), e.getMessage());
-			return false;
-		}
+		return this.scheduleDelayMes(producer, message, delayTime) != null;
 	}
 
 	/*
@@ -403,19 +429,54 @@ public class AliyunOnsMqTemplate implements BeanFactoryPostProcessor {
 	 * @param producer
 	 * @param message
 	 * @param date
-	 * @return
+	 * @return 本地投递时返回 true 表示已受理，发送失败按退避重试，重试耗尽后发布 {@link OnsDelayedMessageFailedEvent}
 	 */
 	public boolean sendTimingMes(Producer producer, Message message, Date date) {
+		return this.schedule(producer, message, date.getTime()) != null;
+	}
+
+	/*
+	 * 发送延时消息（延时执行），开启本地延时投递且延时小于阈值时由本地时间轮投递，可在投递前取消
+	 *
+	 * @param producer
+	 * @param message
+	 * @param delayTime 延迟时间
+	 * @return 发送失败时返回 null
+	 */
+	public OnsDelayedMessage scheduleDelayMes(Producer producer, Message message, long delayTime) {
+		// 发信息必须给一个唯一标识key用于做幂等，未指定时由 beforeSend 自动生成
+		this.assertKey(message);
+		return this.schedule(producer, message, System.currentTimeMillis() + delayTime);
+	}
+
+	/*
+	 * 发送定时消息，开启本地延时投递且距投递时间小于阈值时由本地时间轮投递，可在投递前取消
+	 *
+	 * @param producer
+	 * @param message
+	 * @param date
+	 * @return 发送失败时返回 null
+	 */
+	public OnsDelayedMessage scheduleTimingMes(Producer producer, Message message, Date date) {
+		return this.schedule(producer, message, date.getTime());
+	}
+
+	private OnsDelayedMessage schedule(Producer producer, Message message, long executeTime) {
 		try {
-			long executeTime = date.getTime();
+			this.beforeSend(message);
+			if (delayScheduler != null && delayScheduler.isLocal(executeTime)) {
+				OnsDelayedMessage delayed = delayScheduler.schedule(producer, message, executeTime);
+				log.info(" Schedule mq message locally. Topic is: {}, key: {}, deliverTime: {}", message.getTopic(), message.getKey(), executeTime);
+				return delayed;
+			}
 			message.setStartDeliverTime(executeTime);
 			SendResult sendResult = producer.send(message);
 			log.info(" Send mq message success. Topic is:" + message.getTopic() + " msgId is: "
 					+ sendResult.getMessageId());
-			return true;
+			return new OnsDelayedMessage(sendResult.getMessageId(), producer, message, executeTime, null);
 		} catch (Exception e) {
 			log.error(" Send mq message failed. Topic is: {}, msgId: {}, error : {}", message.getTopic(), message.getMsgID(), e.getMessage());
-			return false;
+			return null;
 		}
 	}
 }
@@ -0,0 +1,195 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.ons.api.PropertyKeyConst;
+import com.aliyun.openservices.ons.api.bean.BatchConsumerBean;
+import com.aliyun.openservices.ons.api.bean.ConsumerBean;
+import com.aliyun.openservices.ons.api.bean.OrderConsumerBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 运行期刷新配置：多线程发送线程池原地调整；ONS 客户端不支持在线修改的消费者参数，通过逐个平滑重启消费者生效
+ */
+@Slf4j
+public class AliyunOnsRefresher {
+
+	/*
+	 * 刷新时需要同步到消费者的参数，其余参数（如 GROUP_ID、InstanceName）保留消费者自身的配置
+	 */
+	private static final List<String> CONSUMER_KEYS = Arrays.asList(PropertyKeyConst.ConsumeThreadNums,
+			PropertyKeyConst.ConsumeMessageBatchMaxSize, PropertyKeyConst.MaxCachedMessageAmount,
+			PropertyKeyConst.MaxCachedMessageSizeInMiB, PropertyKeyConst.MaxReconsumeTimes, PropertyKeyConst.MAX_BATCH_MESSAGE_COUNT,
+			PropertyKeyConst.ENABLE_ORDERLY_CONSUME_ACCELERATOR, PropertyKeyConst.ConsumeTimeout,
+			PropertyKeyConst.BatchConsumeMaxAwaitDurationInSeconds, PropertyKeyConst.SuspendTimeMillis);
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final AliyunProperties onsProperties;
+
+	private final AliyunOnsMqProperties onsMqProperties;
+
+	private final AliyunOnsMqPoolProperties poolProperties;
+
+	private final ListableBeanFactory beanFactory;
+
+	/*
+	 * 正在重启的消费者 beanName，重启期间消费者处于关闭状态
+	 */
+	private final Set<String> restarting = ConcurrentHashMap.newKeySet();
+
+	public AliyunOnsRefresher(AliyunOnsMqTemplate onsMqTemplate, AliyunProperties onsProperties,
+			AliyunOnsMqProperties onsMqProperties, AliyunOnsMqPoolProperties poolProperties, ListableBeanFactory beanFactory) {
+		this.onsMqTemplate = onsMqTemplate;
+		this.onsProperties = onsProperties;
+		this.onsMqProperties = onsMqProperties;
+		this.poolProperties = poolProperties;
+		this.beanFactory = beanFactory;
+	}
+
+	/*
+	 * 从环境中重新绑定配置并刷新；绑定到新实例后整体复制，环境中已删除的配置项恢复为默认值
+	 *
+	 * @param environment
+	 */
+	public void rebind(Environment environment) {
+		Binder binder = Binder.get(environment);
+		AliyunOnsMqPoolProperties latestPool = binder.bindOrCreate(AliyunOnsMqPoolProperties.PREFIX, AliyunOnsMqPoolProperties.class);
+		AliyunOnsMqProperties latest = binder.bindOrCreate(AliyunOnsMqProperties.PREFIX, AliyunOnsMqProperties.class);
+		synchronized (this) {
+			BeanUtils.copyProperties(latestPool, poolProperties);
+			BeanUtils.copyProperties(latest, onsMqProperties);
+			this.refresh();
+		}
+	}
+
+	public synchronized void refresh() {
+		this.refreshPool();
+		this.refreshConsumers();
+	}
+
+	public synchronized void refreshPool() {
+		onsMqTemplate.resizePool(poolProperties);
+	}
+
+	/*
+	 * 参数有变化的消费者逐个关闭后重新启动，关闭时会等待正在消费的消息处理完成
+	 */
+	public synchronized void refreshConsumers() {
+		Properties latest = onsMqProperties.toConsumerProperties(onsProperties);
+		for (Map.Entry<String, Admin> entry : this.getConsumers().entrySet()) {
+			Admin consumer = entry.getValue();
+			Properties current = this.getProperties(consumer);
+			if (current == null) {
+				continue;
+			}
+			Properties properties = new Properties();
+			properties.putAll(current);
+			boolean changed = false;
+			for (String key : CONSUMER_KEYS) {
+				Object value = latest.get(key);
+				if (value != null && !Objects.equals(String.valueOf(value), String.valueOf(current.get(key)))) {
+					properties.put(key, value);
+					changed = true;
+				}
+			}
+			if (!changed) {
+				continue;
+			}
+			long begin = System.currentTimeMillis();
+			boolean started = this.isStarted(consumer);
+			restarting.add(entry.getKey());
+			try {
+				if (started) {
+					consumer.shutdown();
+				}
+				this.setProperties(consumer, properties);
+				if (started) {
+					consumer.start();
+				}
+			} finally {
+				restarting.remove(entry.getKey());
+			}
+			log.info("ONS consumer [{}] reconfigured in {} ms (restarted: {})", entry.getKey(), System.currentTimeMillis() - begin, started);
+		}
+	}
+
+	/*
+	 * 消费者是否正在因刷新配置而重启
+	 *
+	 * @param beanName 消费者 beanName
+	 */
+	public boolean isRestarting(String beanName) {
+		return restarting.contains(beanName);
+	}
+
+	/*
+	 * 容器中的消费者（ConsumerBean、BatchConsumerBean、OrderConsumerBean）
+	 *
+	 * @return beanName -> 消费者
+	 */
+	public Map<String, Admin> getConsumers() {
+		Map<String, Admin> consumers = new LinkedHashMap<>();
+		for (Map.Entry<String, Admin> entry : beanFactory.getBeansOfType(Admin.class).entrySet()) {
+			Admin client = entry.getValue();
+			if (client instanceof ConsumerBean || client instanceof BatchConsumerBean || client instanceof OrderConsumerBean) {
+				consumers.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return consumers;
+	}
+
+	public AliyunOnsMqProperties getOnsMqProperties() {
+		return onsMqProperties;
+	}
+
+	public AliyunOnsMqPoolProperties getPoolProperties() {
+		return poolProperties;
+	}
+
+	private Properties getProperties(Admin consumer) {
+		if (consumer instanceof ConsumerBean) {
+			return ((ConsumerBean) consumer).getProperties();
+		}
+		if (consumer instanceof BatchConsumerBean) {
+			return ((BatchConsumerBean) consumer).getProperties();
+		}
+		if (consumer instanceof OrderConsumerBean) {
+			return ((OrderConsumerBean) consumer).getProperties();
+		}
+		return null;
+	}
+
+	private void setProperties(Admin consumer, Properties properties) {
+		if (consumer instanceof ConsumerBean) {
+			((ConsumerBean) consumer).setProperties(properties);
+		} else if (consumer instanceof BatchConsumerBean) {
+			((BatchConsumerBean) consumer).setProperties(properties);
+		} else if (consumer instanceof OrderConsumerBean) {
+			((OrderConsumerBean) consumer).setProperties(properties);
+		}
+	}
+
+	private boolean isStarted(Admin consumer) {
+		try {
+			return consumer.isStarted();
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+}
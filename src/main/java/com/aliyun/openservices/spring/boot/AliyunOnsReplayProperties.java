@@ -0,0 +1,60 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 消息回放配置参数
+ * 从本地文件（JSON Lines 或二进制格式）读取历史消息，通过 {@link AliyunOnsMqTemplate} 并行重新发送，支持限速与断点续传
+ */
+@ConfigurationProperties(prefix = AliyunOnsReplayProperties.PREFIX)
+@Data
+public class AliyunOnsReplayProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsReplayProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.replay";
+
+	/**
+	 * 是否开启消息回放
+	 */
+	private boolean enabled = false;
+	/**
+	 * 发送并行度：普通消息的发送线程数，同时也是顺序消息的发送通道数（同一 shardingKey 固定在同一通道）
+	 */
+	private int parallelism = 8;
+	/**
+	 * 已读取但未发送完成的消息数上限
+	 */
+	private int maxInFlight = 1000;
+	/**
+	 * 默认每个 Topic 每秒发送的消息数上限，小于等于 0 时不限速
+	 */
+	private double defaultRateLimit = 0;
+	/**
+	 * 按 Topic 指定每秒发送的消息数上限，覆盖 defaultRateLimit
+	 */
+	private Map<String, Double> rateLimits = new LinkedHashMap<>();
+	/**
+	 * 单条消息发送失败后的重试次数，重试用尽后停止回放，断点停在该消息之前
+	 */
+	private int maxRetries = 3;
+	/**
+	 * 重试间隔（毫秒）
+	 */
+	private long retryBackoffMillis = 500;
+	/**
+	 * 保存断点与打印进度的间隔（毫秒）
+	 */
+	private long checkpointIntervalMillis = 1000;
+	/**
+	 * 读取回放文件时每次内存映射的区域大小（字节）
+	 */
+	private int mappedRegionSize = 64 * 1024 * 1024;
+
+}
@@ -0,0 +1,288 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import com.aliyun.openservices.ons.api.MessageListener;
+import com.aliyun.openservices.ons.api.batch.BatchMessageListener;
+import com.aliyun.openservices.ons.api.bean.Subscription;
+import com.aliyun.openservices.ons.api.order.MessageOrderListener;
+import com.aliyun.openservices.spring.boot.annotation.BatchMessageConsumer;
+import com.aliyun.openservices.spring.boot.annotation.MessageConsumer;
+import com.aliyun.openservices.spring.boot.annotation.MessageOrderConsumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 订阅关系注册表：所有单例初始化完成后扫描一次 {@link MessageConsumer}、{@link BatchMessageConsumer}、{@link MessageOrderConsumer}
+ * 标注的监听器并缓存为不可变的订阅关系，之后按 beanName 直接查表；新增或移除监听器 Bean 后可调用 {@link #refresh()} 增量同步。
+ * 返回给调用方的订阅关系均为可修改的副本，与此前每次新建 HashMap 的行为一致
+ */
+@Slf4j
+public class AliyunOnsSubscriptionRegistry implements BeanFactoryAware, SmartInitializingSingleton {
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	/*
+	 * beanName -> 订阅关系
+	 */
+	private volatile SubscriptionTable<MessageListener> subscriptions = SubscriptionTable.empty();
+	private volatile SubscriptionTable<BatchMessageListener> batchSubscriptions = SubscriptionTable.empty();
+	private volatile SubscriptionTable<MessageOrderListener> orderSubscriptions = SubscriptionTable.empty();
+
+	private volatile boolean initialized = false;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		Assert.isInstanceOf(ConfigurableListableBeanFactory.class, beanFactory);
+		this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		this.refresh();
+	}
+
+	/*
+	 * 增量刷新：只解析尚未注册过的监听器 Bean，已注册的订阅关系保持不变，已不存在的监听器 Bean 从注册表中移除
+	 */
+	public synchronized void refresh() {
+		Assert.state(beanFactory != null, "BeanFactory has not been set");
+		this.subscriptions = this.scan(subscriptions, MessageConsumer.class, MessageListener.class);
+		this.batchSubscriptions = this.scan(batchSubscriptions, BatchMessageConsumer.class, BatchMessageListener.class);
+		this.orderSubscriptions = this.scan(orderSubscriptions, MessageOrderConsumer.class, MessageOrderListener.class);
+		this.initialized = true;
+	}
+
+	/*
+	 * 获取消费者监听订阅关系
+	 * @param beanNames 指定的监听器 beanName，为空时返回全部
+	 * @return subscriptionTable
+	 */
+	public Map<Subscription, MessageListener> getSubscriptionTable(String... beanNames) {
+		this.ensureInitialized();
+		return subscriptions.lookup(MessageConsumer.class, beanNames);
+	}
+
+	/*
+	 * 获取批量消费者监听订阅关系
+	 * @param beanNames 指定的监听器 beanName，为空时返回全部
+	 * @return subscriptionTable
+	 */
+	public Map<Subscription, BatchMessageListener> getBatchSubscriptionTable(String... beanNames) {
+		this.ensureInitialized();
+		return batchSubscriptions.lookup(BatchMessageConsumer.class, beanNames);
+	}
+
+	/*
+	 * 获取顺序消费者监听订阅关系
+	 * @param beanNames 指定的监听器 beanName，为空时返回全部
+	 * @return subscriptionTable
+	 */
+	public Map<Subscription, MessageOrderListener> getOrderSubscriptionTable(String... beanNames) {
+		this.ensureInitialized();
+		return orderSubscriptions.lookup(MessageOrderConsumer.class, beanNames);
+	}
+
+	/*
+	 * 按 beanName 获取消费者监听
+	 * @param beanName
+	 * @return 未注册时返回 null
+	 */
+	public MessageListener getListener(String beanName) {
+		this.ensureInitialized();
+		return subscriptions.listeners.get(beanName);
+	}
+
+	/*
+	 * 按 beanName 获取批量消费者监听
+	 * @param beanName
+	 * @return 未注册时返回 null
+	 */
+	public BatchMessageListener getBatchListener(String beanName) {
+		this.ensureInitialized();
+		return batchSubscriptions.listeners.get(beanName);
+	}
+
+	/*
+	 * 按 beanName 获取顺序消费者监听
+	 * @param beanName
+	 * @return 未注册时返回 null
+	 */
+	public MessageOrderListener getOrderListener(String beanName) {
+		this.ensureInitialized();
+		return orderSubscriptions.listeners.get(beanName);
+	}
+
+	/*
+	 * 消费者监听订阅关系
+	 * @return beanName -> 订阅关系
+	 */
+	public Map<String, Subscription> getSubscriptions() {
+		this.ensureInitialized();
+		return new LinkedHashMap<>(subscriptions.subscriptions);
+	}
+
+	/*
+	 * 批量消费者监听订阅关系
+	 * @return beanName -> 订阅关系
+	 */
+	public Map<String, Subscription> getBatchSubscriptions() {
+		this.ensureInitialized();
+		return new LinkedHashMap<>(batchSubscriptions.subscriptions);
+	}
+
+	/*
+	 * 顺序消费者监听订阅关系
+	 * @return beanName -> 订阅关系
+	 */
+	public Map<String, Subscription> getOrderSubscriptions() {
+		this.ensureInitialized();
+		return new LinkedHashMap<>(orderSubscriptions.subscriptions);
+	}
+
+	/*
+	 * 消费者 Bean 可能在所有单例初始化完成之前（如 @Bean 方法中）获取订阅关系，此时先行扫描一次
+	 */
+	private void ensureInitialized() {
+		if (!initialized) {
+			this.refresh();
+		}
+	}
+
+	private <L> SubscriptionTable<L> scan(SubscriptionTable<L> current, Class<? extends Annotation> annotationType,
+			Class<L> listenerType) {
+		String[] beanNames = beanFactory.getBeanNamesForAnnotation(annotationType);
+		Map<String, Subscription> subscriptionMap = new LinkedHashMap<>(current.subscriptions);
+		Map<String, L> listenerMap = new LinkedHashMap<>(current.listeners);
+		boolean changed = false;
+		Set<String> present = new HashSet<>(Arrays.asList(beanNames));
+		for (Iterator<String> iterator = subscriptionMap.keySet().iterator(); iterator.hasNext();) {
+			String beanName = iterator.next();
+			if (!present.contains(beanName)) {
+				iterator.remove();
+				listenerMap.remove(beanName);
+				changed = true;
+				log.info("Listener [{}] no longer exists, subscription removed!", beanName);
+			}
+		}
+		for (String beanName : beanNames) {
+			if (subscriptionMap.containsKey(beanName)) {
+				continue;
+			}
+			Class<?> clazz = beanFactory.getType(beanName);
+			Annotation annotation = clazz == null ? null : AnnotationUtils.findAnnotation(clazz, annotationType);
+			if (annotation == null) {
+				throw new IllegalStateException("Unable to resolve @" + annotationType.getSimpleName() + " on bean [" + beanName + "]");
+			}
+			Object listener = beanFactory.getBean(beanName);
+			if (!listenerType.isInstance(listener)) {
+				throw new IllegalStateException("Bean [" + beanName + "] annotated with @" + annotationType.getSimpleName()
+						+ " must implement " + listenerType.getName());
+			}
+			Subscription subscription = this.createSubscription(beanName, annotation, listener);
+			for (Map.Entry<String, Subscription> entry : subscriptionMap.entrySet()) {
+				if (Objects.equals(entry.getValue().getTopic(), subscription.getTopic())) {
+					log.warn("Topic[{}] is subscribed by both [{}] and [{}], make sure they belong to different consumers!",
+							subscription.getTopic(), entry.getKey(), beanName);
+				}
+			}
+			subscriptionMap.put(beanName, subscription);
+			listenerMap.put(beanName, listenerType.cast(listener));
+			changed = true;
+			log.info("Topic[{}] and expression[{}] subscribed by [{}]!", subscription.getTopic(), subscription.getExpression(), beanName);
+		}
+		return changed ? new SubscriptionTable<>(subscriptionMap, listenerMap) : current;
+	}
+
+	private Subscription createSubscription(String beanName, Annotation annotation, Object listener) {
+		String topic;
+		String expression;
+		String customExpression = null;
+		if (annotation instanceof MessageConsumer) {
+			topic = ((MessageConsumer) annotation).topic();
+			expression = ((MessageConsumer) annotation).tag();
+		} else if (annotation instanceof BatchMessageConsumer) {
+			topic = ((BatchMessageConsumer) annotation).topic();
+			expression = ((BatchMessageConsumer) annotation).subExpression();
+		} else {
+			topic = ((MessageOrderConsumer) annotation).topic();
+			expression = ((MessageOrderConsumer) annotation).tag();
+		}
+		// 扩展接口
+		if (listener instanceof AbstractListenerSupport) {
+			customExpression = ((AbstractListenerSupport<?, ?>) listener).expression();
+		}
+		if (!StringUtils.hasText(topic)) {
+			throw new IllegalStateException("Topic of listener bean [" + beanName + "] must not be empty");
+		}
+		// 绑定监听的topic
+		Subscription subscription = new Subscription();
+		subscription.setTopic(topic);
+		// 绑定要监听的tag，多个tag用 || 隔开
+		subscription.setExpression(StringUtils.hasText(customExpression) ? customExpression : expression);
+		return subscription;
+	}
+
+	/*
+	 * 不可变的订阅关系快照
+	 */
+	private static final class SubscriptionTable<L> {
+
+		private static final SubscriptionTable<?> EMPTY = new SubscriptionTable<>(Collections.emptyMap(), Collections.emptyMap());
+
+		private final Map<String, Subscription> subscriptions;
+		private final Map<String, L> listeners;
+		private final Map<Subscription, L> all;
+
+		SubscriptionTable(Map<String, Subscription> subscriptions, Map<String, L> listeners) {
+			this.subscriptions = Collections.unmodifiableMap(subscriptions);
+			this.listeners = Collections.unmodifiableMap(listeners);
+			Map<Subscription, L> all = new LinkedHashMap<>(subscriptions.size());
+			for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+				all.put(entry.getValue(), listeners.get(entry.getKey()));
+			}
+			this.all = Collections.unmodifiableMap(all);
+		}
+
+		@SuppressWarnings("unchecked")
+		static <L> SubscriptionTable<L> empty() {
+			return (SubscriptionTable<L>) EMPTY;
+		}
+
+		Map<Subscription, L> lookup(Class<? extends Annotation> annotationType, String... beanNames) {
+			if (ObjectUtils.isEmpty(beanNames)) {
+				return new LinkedHashMap<>(all);
+			}
+			Map<Subscription, L> subscriptionTable = new LinkedHashMap<>(beanNames.length);
+			for (String beanName : beanNames) {
+				Subscription subscription = subscriptions.get(beanName);
+				if (subscription == null) {
+					throw new IllegalArgumentException("No listener bean named [" + beanName + "] annotated with @"
+							+ annotationType.getSimpleName() + " is registered");
+				}
+				subscriptionTable.put(subscription, listeners.get(beanName));
+			}
+			return subscriptionTable;
+		}
+
+	}
+
+}
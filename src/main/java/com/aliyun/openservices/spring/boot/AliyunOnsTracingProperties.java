@@ -0,0 +1,29 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 链路追踪配置参数
+ * 开启后发送时将 W3C trace context 写入消息用户属性，消费时还原上下文并创建消费 Span
+ */
+@ConfigurationProperties(prefix = AliyunOnsTracingProperties.PREFIX)
+@Data
+public class AliyunOnsTracingProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsTracingProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.tracing";
+
+	/**
+	 * 是否开启链路追踪，需要 classpath 中存在 opentelemetry-api
+	 */
+	private boolean enabled = false;
+	/**
+	 * 头部采样比例（0 ~ 1）：没有上游追踪上下文时按该比例决定是否开启新的链路，有上游上下文时沿用上游的采样结果
+	 */
+	private double sampleRatio = 1.0;
+
+}
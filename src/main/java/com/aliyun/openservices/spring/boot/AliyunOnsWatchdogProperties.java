@@ -0,0 +1,46 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * ons 消费看门狗配置参数
+ * 消费耗时超过软截止时间时采样处理方线程的调用栈，记录指标并发布 {@link OnsSlowConsumeEvent}，可选放弃本次消费使消息稍后重新消费
+ */
+@ConfigurationProperties(prefix = AliyunOnsWatchdogProperties.PREFIX)
+@Data
+public class AliyunOnsWatchdogProperties {
+
+	/**
+     * The prefix of the property of {@link AliyunOnsWatchdogProperties}.
+     */
+    public static final String PREFIX = "alibaba.cloud.ons.watchdog";
+
+	/**
+	 * 是否开启消费看门狗
+	 */
+	private boolean enabled = false;
+	/**
+	 * 默认软截止时间（毫秒），监听器可覆盖 softDeadlineMillis() 单独指定
+	 */
+	private long softDeadlineMillis = 10000;
+	/**
+	 * 检查周期（毫秒）
+	 */
+	private long checkIntervalMillis = 1000;
+	/**
+	 * 调用栈采样的最大深度
+	 */
+	private int stackDepth = 32;
+	/**
+	 * 超过软截止时间后是否放弃本次消费：处理方在隔离线程上执行，消费线程最多等待软截止时间后返回稍后重试；
+	 * 被放弃的处理方会被中断，但不响应中断时仍会执行完，消息重新投递后需幂等
+	 */
+	private boolean abandon = false;
+	/**
+	 * 开启 abandon 时隔离线程的最大数量，所有消费者共用，应大于各消费者 consumeThreadNums 之和；耗尽时消息直接稍后重试
+	 */
+	private int isolationThreads = 256;
+
+}
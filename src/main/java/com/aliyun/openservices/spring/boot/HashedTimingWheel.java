@@ -0,0 +1,291 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+import org.springframework.util.Assert;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 哈希时间轮：单个工作线程按 tick 推进，新增定时任务先进入无锁队列，由工作线程在下一个 tick 放入对应的槽位
+ * 新增与取消均为 O(1)，适合大量短延时任务；到期精度为一个 tick，到期任务在工作线程上执行，耗时操作应提交到其他线程池
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+	private static final int INIT = 0;
+	private static final int STARTED = 1;
+	private static final int SHUTDOWN = 2;
+
+	private static final AtomicIntegerFieldUpdater<HashedTimingWheel.Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater
+			.newUpdater(HashedTimingWheel.Timeout.class, "state");
+
+	private final AtomicInteger workerState = new AtomicInteger(INIT);
+
+	private final long tickNanos;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private final Thread workerThread;
+
+	private volatile long startTime;
+
+	public HashedTimingWheel(ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+		Assert.isTrue(tickDuration > 0, "tickDuration must be greater than 0");
+		Assert.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30), "ticksPerWheel must be between 1 and 2^30");
+		int normalized = 1;
+		while (normalized < ticksPerWheel) {
+			normalized <<= 1;
+		}
+		this.wheel = new Bucket[normalized];
+		for (int i = 0; i < normalized; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = normalized - 1;
+		this.tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+		this.workerThread = threadFactory.newThread(this::work);
+	}
+
+	public void start() {
+		if (workerState.compareAndSet(INIT, STARTED)) {
+			this.startTime = System.nanoTime();
+			workerThread.start();
+		}
+		Assert.state(workerState.get() == STARTED, "HashedTimingWheel has been stopped");
+	}
+
+	/*
+	 * 停止工作线程，返回尚未到期且未取消的任务
+	 */
+	public void stop(Consumer<Timeout> unprocessed) {
+		if (!workerState.compareAndSet(STARTED, SHUTDOWN)) {
+			workerState.set(SHUTDOWN);
+			return;
+		}
+		workerThread.interrupt();
+		try {
+			workerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Bucket bucket : wheel) {
+			bucket.drain(unprocessed);
+		}
+		Timeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (!timeout.isCancelled()) {
+				unprocessed.accept(timeout);
+			}
+		}
+	}
+
+	/*
+	 * 新增定时任务
+	 *
+	 * @param task  到期时在工作线程上执行
+	 * @param delay 延时，小于一个 tick 时在下一个 tick 执行
+	 * @return
+	 */
+	public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		this.start();
+		long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+		Timeout timeout = new Timeout(task, deadline);
+		pendingCount.incrementAndGet();
+		pendingTimeouts.add(timeout);
+		return timeout;
+	}
+
+	/*
+	 * 尚未到期的任务数量（包含已取消但未移除的任务）
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	private void work() {
+		long tick = 0;
+		while (workerState.get() == STARTED) {
+			if (!this.waitForNextTick(tick)) {
+				break;
+			}
+			this.transferPendingTimeouts(tick);
+			wheel[(int) (tick & mask)].expire();
+			tick++;
+		}
+	}
+
+	private boolean waitForNextTick(long tick) {
+		long deadline = tickNanos * (tick + 1);
+		for (;;) {
+			long sleepNanos = deadline - (System.nanoTime() - startTime);
+			if (sleepNanos <= 0) {
+				return true;
+			}
+			try {
+				TimeUnit.NANOSECONDS.sleep(sleepNanos);
+			} catch (InterruptedException e) {
+				if (workerState.get() != STARTED) {
+					return false;
+				}
+			}
+		}
+	}
+
+	private void transferPendingTimeouts(long tick) {
+		// 每个 tick 最多转移 100000 个，避免新增过快时工作线程无法推进
+		for (int i = 0; i < 100000; i++) {
+			Timeout timeout = pendingTimeouts.poll();
+			if (timeout == null) {
+				break;
+			}
+			if (timeout.isCancelled()) {
+				continue;
+			}
+			long calculated = timeout.deadline / tickNanos;
+			timeout.remainingRounds = (calculated - tick) / wheel.length;
+			// 已过期的任务放入当前槽位，本次 tick 即执行
+			wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * 定时任务句柄
+	 */
+	public final class Timeout {
+
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+
+		private final Runnable task;
+
+		private final long deadline;
+
+		volatile int state = ST_INIT;
+
+		/*
+		 * 以下字段仅由工作线程访问
+		 */
+		private long remainingRounds;
+		private Timeout next;
+		private Timeout prev;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		public Runnable getTask() {
+			return task;
+		}
+
+		/*
+		 * 取消任务，已到期或已取消时返回 false；已取消的任务由工作线程在经过所在槽位时移除
+		 */
+		public boolean cancel() {
+			if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+				return false;
+			}
+			pendingCount.decrementAndGet();
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return state == ST_CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+				return;
+			}
+			pendingCount.decrementAndGet();
+			try {
+				task.run();
+			} catch (Throwable e) {
+				log.warn("An exception was thrown by timing wheel task", e);
+			}
+		}
+
+	}
+
+	/*
+	 * 槽位：双向链表，仅由工作线程访问
+	 */
+	private final class Bucket {
+
+		private Timeout head;
+		private Timeout tail;
+
+		void add(Timeout timeout) {
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void expire() {
+			Timeout timeout = head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.remainingRounds <= 0 || timeout.isCancelled()) {
+					this.remove(timeout);
+					timeout.expire();
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void drain(Consumer<Timeout> unprocessed) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				this.remove(timeout);
+				if (!timeout.isCancelled() && !timeout.isExpired()) {
+					unprocessed.accept(timeout);
+				}
+				timeout = next;
+			}
+		}
+
+		private void remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.prev != null) {
+				timeout.prev.next = next;
+			}
+			if (next != null) {
+				next.prev = timeout.prev;
+			}
+			if (timeout == head) {
+				head = next;
+			}
+			if (timeout == tail) {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.aliyun.openservices.spring.boot;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+
+/**
+ * 首次发送消息时才启动的 OrderProducer
+ */
+public class LazyOrderProducer extends AbstractLazyAdmin<OrderProducer> implements OrderProducer {
+
+	public LazyOrderProducer(OrderProducer delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public SendResult send(Message message, String shardingKey) {
+		return delegate().send(message, shardingKey);
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.concurrent.ExecutorService;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendCallback;
+import com.aliyun.openservices.ons.api.SendResult;
+
+/**
+ * 首次发送消息时才启动的 Producer
+ */
+public class LazyProducer extends AbstractLazyAdmin<Producer> implements Producer {
+
+	public LazyProducer(Producer delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public SendResult send(Message message) {
+		return delegate().send(message);
+	}
+
+	@Override
+	public void sendOneway(Message message) {
+		delegate().sendOneway(message);
+	}
+
+	@Override
+	public void sendAsync(Message message, SendCallback sendCallback) {
+		delegate().sendAsync(message, sendCallback);
+	}
+
+	@Override
+	public void setCallbackExecutor(ExecutorService callbackExecutor) {
+		getDelegate().setCallbackExecutor(callbackExecutor);
+	}
+
+}
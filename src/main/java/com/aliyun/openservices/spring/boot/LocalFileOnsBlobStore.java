@@ -0,0 +1,85 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.util.Assert;
+
+/**
+ * 基于本地文件系统的大消息体存储，多实例部署时 directory 需指向共享存储（如 NAS）
+ */
+public class LocalFileOnsBlobStore implements OnsBlobStore {
+
+	private final Path directory;
+
+	public LocalFileOnsBlobStore(String directory) {
+		this.directory = Paths.get(directory).toAbsolutePath().normalize();
+	}
+
+	@Override
+	public String put(String topic, String key, byte[] body) throws IOException {
+		String reference = topic + "/" + UUID.randomUUID().toString();
+		Path target = this.resolve(reference);
+		Files.createDirectories(target.getParent());
+		// 先写临时文件再原子重命名，避免消费方读到写了一半的消息体
+		Path temp = Files.createTempFile(target.getParent(), ".", ".tmp");
+		Files.write(temp, body);
+		Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		return reference;
+	}
+
+	@Override
+	public InputStream open(String reference) throws IOException {
+		return Files.newInputStream(this.resolve(reference));
+	}
+
+	@Override
+	public void delete(String reference) throws IOException {
+		Files.deleteIfExists(this.resolve(reference));
+	}
+
+	/*
+	 * 按文件修改时间清理，包括写入中途失败遗留的临时文件
+	 */
+	@Override
+	public int purge(long expireBefore) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return 0;
+		}
+		List<Path> expired;
+		try (Stream<Path> paths = Files.walk(directory)) {
+			expired = paths.filter(path -> isExpired(path, expireBefore)).collect(Collectors.toList());
+		}
+		int purged = 0;
+		for (Path path : expired) {
+			if (Files.deleteIfExists(path)) {
+				purged++;
+			}
+		}
+		return purged;
+	}
+
+	private static boolean isExpired(Path path, long expireBefore) {
+		try {
+			return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toMillis() < expireBefore;
+		} catch (IOException e) {
+			// 已被其他实例删除
+			return false;
+		}
+	}
+
+	private Path resolve(String reference) {
+		Path path = directory.resolve(reference).normalize();
+		Assert.isTrue(path.startsWith(directory), "Illegal blob reference: " + reference);
+		return path;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 大消息体存储 SPI：claim-check 模式下超过阈值的消息体写入该存储，消息中只携带引用
+ * 默认提供本地文件系统实现 {@link LocalFileOnsBlobStore}，OSS/S3 等对象存储实现该接口并注册为 Bean 即可替换
+ */
+public interface OnsBlobStore {
+
+	/*
+	 * 写入消息体
+	 *
+	 * @param topic 消息主题
+	 * @param key   消息唯一标识
+	 * @param body  消息体
+	 * @return 消息体引用
+	 */
+	String put(String topic, String key, byte[] body) throws IOException;
+
+	/*
+	 * 以流的方式读取消息体
+	 *
+	 * @param reference 消息体引用
+	 * @return
+	 */
+	InputStream open(String reference) throws IOException;
+
+	/*
+	 * 删除消息体，消息体的保留策略由调用方或存储自身决定
+	 *
+	 * @param reference 消息体引用
+	 */
+	void delete(String reference) throws IOException;
+
+	/*
+	 * 删除早于指定时间写入的消息体，由 claim-check 按 retentionMillis 定期调用；
+	 * 对象存储可改用自身的生命周期规则，默认不做任何处理
+	 *
+	 * @param expireBefore 截止时间戳（毫秒）
+	 * @return 删除的消息体数量
+	 */
+	default int purge(long expireBefore) throws IOException {
+		return 0;
+	}
+
+}
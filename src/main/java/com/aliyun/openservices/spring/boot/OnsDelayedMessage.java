@@ -0,0 +1,137 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+
+/**
+ * 延时/定时消息句柄：本地投递的消息在发送前可以取消；交由 Broker 定时投递的消息已发送，不能取消
+ */
+public class OnsDelayedMessage {
+
+	private static final int PENDING = 0;
+	private static final int CANCELLED = 1;
+	private static final int DISPATCHED = 2;
+	private static final int FAILED = 3;
+
+	private final String id;
+
+	private final Producer producer;
+
+	private final Message message;
+
+	private final long deliverTime;
+
+	/*
+	 * 本地投递时的调度器，Broker 定时投递时为 null
+	 */
+	private final AliyunOnsDelayScheduler scheduler;
+
+	private final AtomicInteger state;
+
+	volatile HashedTimingWheel.Timeout timeout;
+
+	/*
+	 * 本地投递已失败的发送次数，同一时刻只有一个发送线程
+	 */
+	private volatile int attempts;
+
+	OnsDelayedMessage(String id, Producer producer, Message message, long deliverTime, AliyunOnsDelayScheduler scheduler) {
+		this.id = id;
+		this.producer = producer;
+		this.message = message;
+		this.deliverTime = deliverTime;
+		this.scheduler = scheduler;
+		this.state = new AtomicInteger(scheduler == null ? DISPATCHED : PENDING);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Message getMessage() {
+		return message;
+	}
+
+	/*
+	 * 投递时间（毫秒时间戳）
+	 */
+	public long getDeliverTime() {
+		return deliverTime;
+	}
+
+	/*
+	 * 是否由本地时间轮投递
+	 */
+	public boolean isLocal() {
+		return scheduler != null;
+	}
+
+	/*
+	 * 取消投递
+	 *
+	 * @return 已发送或已取消时返回 false
+	 */
+	public boolean cancel() {
+		if (!state.compareAndSet(PENDING, CANCELLED)) {
+			return false;
+		}
+		HashedTimingWheel.Timeout timeout = this.timeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		scheduler.cancelled(this);
+		return true;
+	}
+
+	public boolean isCancelled() {
+		return state.get() == CANCELLED;
+	}
+
+	/*
+	 * 是否已发送或正在发送（含等待重试）
+	 */
+	public boolean isDispatched() {
+		return state.get() == DISPATCHED;
+	}
+
+	/*
+	 * 本地投递重试耗尽后最终发送失败
+	 */
+	public boolean isFailed() {
+		return state.get() == FAILED;
+	}
+
+	/*
+	 * 本地投递失败的发送次数
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	Producer getProducer() {
+		return producer;
+	}
+
+	/*
+	 * 到期或转交 Broker 时标记为已发送，与 {@link #cancel()} 互斥
+	 */
+	boolean markDispatched() {
+		return state.compareAndSet(PENDING, DISPATCHED);
+	}
+
+	/*
+	 * 记录一次发送失败
+	 *
+	 * @return 累计失败次数
+	 */
+	int failedAttempt() {
+		return ++attempts;
+	}
+
+	void markFailed() {
+		state.set(FAILED);
+	}
+
+}
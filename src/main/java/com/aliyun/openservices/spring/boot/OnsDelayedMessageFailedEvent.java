@@ -0,0 +1,34 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 本地延时投递最终失败事件：重试耗尽后由 {@link AliyunOnsDelayScheduler} 发布，
+ * 此时 sendDelayMes/sendTimingMes 早已返回，调用方可监听该事件补偿（如改为 Broker 定时投递或告警）
+ */
+public class OnsDelayedMessageFailedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient OnsDelayedMessage delayedMessage;
+
+	private final Exception cause;
+
+	public OnsDelayedMessageFailedEvent(AliyunOnsDelayScheduler source, OnsDelayedMessage delayedMessage, Exception cause) {
+		super(source);
+		this.delayedMessage = delayedMessage;
+		this.cause = cause;
+	}
+
+	public OnsDelayedMessage getDelayedMessage() {
+		return delayedMessage;
+	}
+
+	/*
+	 * 最后一次发送的异常
+	 */
+	public Exception getCause() {
+		return cause;
+	}
+
+}
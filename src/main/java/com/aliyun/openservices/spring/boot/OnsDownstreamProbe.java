@@ -0,0 +1,27 @@
+package com.aliyun.openservices.spring.boot;
+
+/**
+ * 下游健康探针：注册为 Bean 后由 {@link AliyunOnsBackPressureController} 在每个评估周期调用一次，
+ * 饱和时只收缩 {@link #appliesTo(String)} 的监听器的并发
+ */
+@FunctionalInterface
+public interface OnsDownstreamProbe {
+
+	/*
+	 * 下游（如数据库、外部接口）是否已饱和
+	 *
+	 * @return true 表示应收缩消费并发
+	 */
+	boolean isSaturated();
+
+	/*
+	 * 探针作用的监听器，默认作用于所有监听器
+	 *
+	 * @param listener 监听器 beanName
+	 * @return
+	 */
+	default boolean appliesTo(String listener) {
+		return true;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.aliyun.openservices.spring.boot;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 消息 Key 生成 SPI：{@link AliyunOnsMqTemplate} 发送前为没有 Key 的消息生成唯一标识
+ * 默认实现为 {@link TimeOrderedOnsKeyGenerator}，注册自定义实现的 Bean 即可替换
+ */
+@FunctionalInterface
+public interface OnsKeyGenerator {
+
+	/*
+	 * 生成消息 Key
+	 *
+	 * @param message 待发送的消息
+	 * @return 全局唯一的 Key
+	 */
+	String generateKey(Message message);
+
+}
@@ -0,0 +1,92 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.util.StreamUtils;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 消息体句柄：claim-check 转存的消息体只在读取时才从 {@link OnsBlobStore} 以流的方式打开，消息中仍保留引用；
+ * 未转存的消息直接读取 getBody()。句柄本身不做任何 I/O，每次读取都重新打开
+ */
+public class OnsMessageBody {
+
+	private final AliyunOnsClaimCheck claimCheck;
+
+	private final Message message;
+
+	/*
+	 * @param claimCheck 未开启 claim-check 时为 null，读取转存的消息体时失败
+	 * @param message
+	 */
+	public OnsMessageBody(AliyunOnsClaimCheck claimCheck, Message message) {
+		this.claimCheck = claimCheck;
+		this.message = message;
+	}
+
+	/*
+	 * 消息体是否已转存
+	 */
+	public boolean isCheckedIn() {
+		return AliyunOnsClaimCheck.isCheckedIn(message);
+	}
+
+	/*
+	 * 转存消息体的引用，未转存时返回 null
+	 */
+	public String getReference() {
+		return message.getUserProperties(AliyunOnsClaimCheck.PROPERTY_REFERENCE);
+	}
+
+	/*
+	 * 原始消息体大小（字节），不读取消息体
+	 */
+	public long getSize() {
+		String size = message.getUserProperties(AliyunOnsClaimCheck.PROPERTY_BODY_SIZE);
+		if (size != null) {
+			return Long.parseLong(size);
+		}
+		return message.getBody() == null ? 0 : message.getBody().length;
+	}
+
+	/*
+	 * 以流的方式读取原始消息体，调用方负责关闭
+	 */
+	public InputStream openStream() throws IOException {
+		String reference = this.getReference();
+		if (reference == null) {
+			return new ByteArrayInputStream(message.getBody());
+		}
+		return this.claimCheck().getBlobStore().open(reference);
+	}
+
+	/*
+	 * 读取完整的原始消息体，大消息体优先使用 {@link #openStream()}
+	 */
+	public byte[] getBytes() throws IOException {
+		if (!this.isCheckedIn()) {
+			return message.getBody();
+		}
+		try (InputStream input = this.openStream()) {
+			return StreamUtils.copyToByteArray(input);
+		}
+	}
+
+	private AliyunOnsClaimCheck claimCheck() {
+		// 未配置 claim-check 时转存过的消息无法读取，直接失败而不是把引用当作消息体交给处理方
+		if (claimCheck == null) {
+			throw new IllegalStateException("Message body of topic " + message.getTopic() + " was checked in, but claim-check is not enabled");
+		}
+		return claimCheck;
+	}
+
+	@Override
+	public String toString() {
+		String reference = this.getReference();
+		return reference == null ? "size=" + this.getSize() : "size=" + this.getSize() + ",reference=" + reference;
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.aliyun.openservices.spring.boot;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 慢消费事件：消费耗时超过软截止时间时由 {@link AliyunOnsConsumeWatchdog} 发布
+ */
+public class OnsSlowConsumeEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String listener;
+
+	private final String topic;
+
+	private final String msgId;
+
+	private final String key;
+
+	private final int batchSize;
+
+	private final long elapsedMillis;
+
+	private final StackTraceElement[] stackTrace;
+
+	private final boolean abandoned;
+
+	public OnsSlowConsumeEvent(AliyunOnsConsumeWatchdog source, String listener, String topic, String msgId, String key,
+			int batchSize, long elapsedMillis, StackTraceElement[] stackTrace, boolean abandoned) {
+		super(source);
+		this.listener = listener;
+		this.topic = topic;
+		this.msgId = msgId;
+		this.key = key;
+		this.batchSize = batchSize;
+		this.elapsedMillis = elapsedMillis;
+		this.stackTrace = stackTrace;
+		this.abandoned = abandoned;
+	}
+
+	public String getListener() {
+		return listener;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	public String getMsgId() {
+		return msgId;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/*
+	 * 批量消费时为整批的消息数，msgId、key 为批次中第一条消息
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/*
+	 * 超过软截止时间后采样的消费线程调用栈
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace;
+	}
+
+	/*
+	 * 是否已中断消费线程放弃本次消费
+	 */
+	public boolean isAbandoned() {
+		return abandoned;
+	}
+
+}
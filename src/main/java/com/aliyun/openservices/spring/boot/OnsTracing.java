@@ -0,0 +1,65 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 消息链路追踪 SPI：发送前向消息用户属性注入追踪上下文，消费时还原上下文并包裹消费过程
+ * 默认提供基于 OpenTelemetry 的实现 {@link com.aliyun.openservices.spring.boot.tracing.OpenTelemetryOnsTracing}；
+ * 未开启追踪时不注册该 Bean，发送与消费路径只多一次判空
+ */
+public interface OnsTracing {
+
+	/*
+	 * 发送前注入追踪上下文
+	 *
+	 * @param message
+	 */
+	void inject(Message message);
+
+	/*
+	 * 开始消费单条消息，消费结束后必须调用 {@link Scope#close(boolean)}
+	 *
+	 * @param message
+	 * @return 未采样时返回 {@link Scope#NOOP}
+	 */
+	Scope startConsume(Message message);
+
+	/*
+	 * 开始消费一批消息，消费结束后必须调用 {@link Scope#close(boolean)}
+	 *
+	 * @param messages
+	 * @return 未采样时返回 {@link Scope#NOOP}
+	 */
+	Scope startBatchConsume(List<Message> messages);
+
+	/*
+	 * 在调用线程捕获当前追踪上下文，任务在其他线程执行时恢复该上下文，用于多线程发送、响应式发送等切换线程的场景
+	 *
+	 * @param task
+	 * @return 恢复上下文后执行 task 的任务
+	 */
+	default <T> Callable<T> wrap(Callable<T> task) {
+		return task;
+	}
+
+	/**
+	 * 消费追踪范围，需在开始消费的线程上关闭
+	 */
+	interface Scope {
+
+		Scope NOOP = success -> {
+		};
+
+		/*
+		 * 结束消费追踪
+		 *
+		 * @param success 是否消费成功
+		 */
+		void close(boolean success);
+
+	}
+
+}
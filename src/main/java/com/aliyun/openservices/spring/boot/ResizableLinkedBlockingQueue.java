@@ -0,0 +1,88 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.util.Assert;
+
+/**
+ * 容量可在运行期调整的阻塞队列，供多线程发送线程池使用
+ * 缩容不会丢弃已入队的任务，只是在队列长度回落到新容量以下之前拒绝新任务；
+ * 入队前先登记正在入队的数量，容量判断计入并发入队的任务，不加锁也不会超出容量，并发入队较多时只会偏保守地拒绝
+ */
+public class ResizableLinkedBlockingQueue<E> extends LinkedBlockingQueue<E> {
+
+	private static final long serialVersionUID = 1L;
+
+	private volatile int capacity;
+
+	/*
+	 * 已通过容量判断但尚未完成入队的数量
+	 */
+	private final AtomicInteger offering = new AtomicInteger();
+
+	public ResizableLinkedBlockingQueue(int capacity) {
+		super();
+		this.setCapacity(capacity);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+	/*
+	 * ThreadPoolExecutor 只使用该方法入队；先登记再读取长度，任务入队后才取消登记，
+	 * 因此每个入队线程的判断都计入了比它先登记且未完成的入队，出队只会让判断偏保守
+	 */
+	@Override
+	public boolean offer(E e) {
+		int pending = offering.incrementAndGet();
+		try {
+			if (size() + pending > capacity) {
+				return false;
+			}
+			return super.offer(e);
+		} finally {
+			offering.decrementAndGet();
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!this.offer(e)) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			this.pause();
+		}
+		return true;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		while (!this.offer(e)) {
+			this.pause();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Math.max(capacity - size(), 0);
+	}
+
+	private void pause() throws InterruptedException {
+		LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 时间有序的消息 Key 生成器：64 位 ID = 41 位毫秒时间戳（自 2020-01-01 起）+ 10 位节点 ID + 12 位序列号
+ * 时间戳与序列号保存在同一个 AtomicLong 中，CAS 推进，无锁；同一毫秒内序列号用尽时借用下一毫秒，时钟回拨时沿用上次的时间戳，保证单调递增
+ * 编码为 11 个字符的定长字符串，字母表按 ASCII 顺序排列，字符串的字典序与 ID 的数值顺序一致；
+ * 可通过 {@link #decode(String)} 还原为 long，作为 apply() 幂等判断的去重键（如 BIGINT 主键）
+ * 节点 ID 必须显式指定，同一时刻运行的实例不能相同（如 StatefulSet 序号、配置中心分配），否则不同实例可能生成相同的 Key
+ */
+public class TimeOrderedOnsKeyGenerator implements OnsKeyGenerator {
+
+	public static final long EPOCH = 1577836800000L;
+
+	public static final int NODE_BITS = 10;
+
+	public static final int SEQUENCE_BITS = 12;
+
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	public static final int KEY_LENGTH = 11;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	private static final byte[] DECODING = new byte[128];
+
+	static {
+		Arrays.fill(DECODING, (byte) -1);
+		for (int i = 0; i < ALPHABET.length; i++) {
+			DECODING[ALPHABET[i]] = (byte) i;
+		}
+	}
+
+	private final long node;
+
+	/*
+	 * (时间戳 - EPOCH) << SEQUENCE_BITS | 序列号
+	 */
+	private final AtomicLong state = new AtomicLong();
+
+	/*
+	 * @param nodeId 节点 ID（0 ~ 1023）
+	 */
+	public TimeOrderedOnsKeyGenerator(int nodeId) {
+		Assert.isTrue(nodeId >= 0 && nodeId <= MAX_NODE_ID, "nodeId must be between 0 and " + MAX_NODE_ID + ", but was " + nodeId);
+		this.node = (long) nodeId << SEQUENCE_BITS;
+	}
+
+	@Override
+	public String generateKey(Message message) {
+		return encode(this.nextId());
+	}
+
+	/*
+	 * 生成下一个 ID
+	 */
+	public long nextId() {
+		long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+		for (;;) {
+			long current = state.get();
+			// 序列号溢出时 current + 1 自然进位到时间戳
+			long next = Math.max(current + 1, now);
+			if (state.compareAndSet(current, next)) {
+				return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | node | (next & SEQUENCE_MASK);
+			}
+		}
+	}
+
+	/*
+	 * 编码为 11 个字符的定长字符串
+	 */
+	public static String encode(long id) {
+		char[] chars = new char[KEY_LENGTH];
+		for (int i = KEY_LENGTH - 1; i >= 0; i--) {
+			chars[i] = ALPHABET[(int) (id & 63)];
+			id >>>= 6;
+		}
+		return new String(chars);
+	}
+
+	/*
+	 * 还原 {@link #encode(long)} 编码前的 ID
+	 *
+	 * @throws IllegalArgumentException 不是该生成器生成的 Key
+	 */
+	public static long decode(String key) {
+		if (key == null || key.length() != KEY_LENGTH) {
+			throw new IllegalArgumentException("Illegal message key: " + key);
+		}
+		long id = 0;
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			char c = key.charAt(i);
+			int value = c < 128 ? DECODING[c] : -1;
+			if (value < 0) {
+				throw new IllegalArgumentException("Illegal message key: " + key);
+			}
+			id = (id << 6) | value;
+		}
+		return id;
+	}
+
+	/*
+	 * 是否符合该生成器的编码格式
+	 */
+	public static boolean matches(String key) {
+		if (key == null || key.length() != KEY_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			char c = key.charAt(i);
+			if (c >= 128 || DECODING[c] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * ID 中的毫秒时间戳
+	 */
+	public static long timestamp(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+	}
+
+	/*
+	 * ID 中的节点 ID
+	 */
+	public static int nodeId(long id) {
+		return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+	}
+
+}
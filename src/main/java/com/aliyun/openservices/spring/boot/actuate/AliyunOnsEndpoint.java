@@ -0,0 +1,184 @@
+package com.aliyun.openservices.spring.boot.actuate;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.ons.api.bean.Subscription;
+import com.aliyun.openservices.spring.boot.AliyunOnsConsumeMetrics;
+import com.aliyun.openservices.spring.boot.AliyunOnsConsumeWatchdog;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.AliyunOnsRefresher;
+import com.aliyun.openservices.spring.boot.AliyunOnsSubscriptionRegistry;
+
+/**
+ * /actuator/ons：各订阅关系的消费速率、耗时分位数、在途数量、最近消费时间、所属消费者本地缓存的实际占用，多线程发送线程池状态，以及开启看门狗时的慢消费统计；
+ * 写操作可在运行期调整线程池与消费者参数
+ */
+@Endpoint(id = "ons")
+public class AliyunOnsEndpoint {
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final AliyunOnsConsumeMetrics consumeMetrics;
+
+	private final AliyunOnsRefresher refresher;
+
+	/*
+	 * 消费看门狗，未开启时为 null
+	 */
+	private AliyunOnsConsumeWatchdog consumeWatchdog;
+
+	public AliyunOnsEndpoint(AliyunOnsMqTemplate onsMqTemplate, AliyunOnsConsumeMetrics consumeMetrics,
+			AliyunOnsRefresher refresher) {
+		this.onsMqTemplate = onsMqTemplate;
+		this.consumeMetrics = consumeMetrics;
+		this.refresher = refresher;
+	}
+
+	public void setConsumeWatchdog(AliyunOnsConsumeWatchdog consumeWatchdog) {
+		this.consumeWatchdog = consumeWatchdog;
+	}
+
+	@ReadOperation
+	public Map<String, Object> ons() {
+		Map<String, Object> result = new LinkedHashMap<>(3);
+		result.put("subscriptions", this.subscriptions());
+		result.put("pool", pool(onsMqTemplate));
+		if (consumeWatchdog != null) {
+			Map<String, Object> watchdog = new LinkedHashMap<>(3);
+			watchdog.put("overdue", consumeWatchdog.getOverdueCount());
+			watchdog.put("slow", consumeWatchdog.getSlowCounts());
+			watchdog.put("abandoned", consumeWatchdog.getAbandonedCounts());
+			result.put("watchdog", watchdog);
+		}
+		return result;
+	}
+
+	/*
+	 * 运行期调整多线程发送线程池与消费者参数，未传入的参数保持不变；消费者参数变化时逐个平滑重启消费者
+	 */
+	@WriteOperation
+	public Map<String, Object> configure(@Nullable Integer corePoolSize, @Nullable Integer maximumPoolSize,
+			@Nullable Integer maximumWorkQueue, @Nullable Integer consumeThreadNums, @Nullable Integer maxCachedMessageAmount,
+			@Nullable Integer maxCachedMessageSizeInMiB) {
+		AliyunOnsMqPoolProperties poolProperties = refresher.getPoolProperties();
+		int core = corePoolSize != null ? corePoolSize : poolProperties.getCorePoolSize();
+		int max = maximumPoolSize != null ? maximumPoolSize : poolProperties.getMaximumPoolSize();
+		Assert.isTrue(core > 0 && max >= core, "invalid pool size, core: " + core + ", max: " + max);
+		Assert.isTrue(maximumWorkQueue == null || maximumWorkQueue > 0, "maximumWorkQueue must be greater than 0");
+		poolProperties.setCorePoolSize(core);
+		poolProperties.setMaximumPoolSize(max);
+		if (maximumWorkQueue != null) {
+			poolProperties.setMaximumWorkQueue(maximumWorkQueue);
+		}
+		AliyunOnsMqProperties mqProperties = refresher.getOnsMqProperties();
+		if (consumeThreadNums != null) {
+			mqProperties.setConsumeThreadNums(consumeThreadNums);
+		}
+		if (maxCachedMessageAmount != null) {
+			mqProperties.setMaxCachedMessageAmount(maxCachedMessageAmount);
+		}
+		if (maxCachedMessageSizeInMiB != null) {
+			mqProperties.setMaxCachedMessageSizeInMiB(maxCachedMessageSizeInMiB);
+		}
+		refresher.refresh();
+		return this.ons();
+	}
+
+	protected List<Map<String, Object>> subscriptions() {
+		AliyunOnsSubscriptionRegistry registry = onsMqTemplate.getSubscriptionRegistry();
+		Map<String, AliyunOnsConsumeMetrics.Snapshot> snapshots = consumeMetrics.snapshot();
+		Map<Object, Map<String, Object>> caches = this.caches();
+		List<Map<String, Object>> subscriptions = new ArrayList<>();
+		this.collect(subscriptions, "listener", registry.getSubscriptions(), registry::getListener, snapshots, caches);
+		this.collect(subscriptions, "batch", registry.getBatchSubscriptions(), registry::getBatchListener, snapshots, caches);
+		this.collect(subscriptions, "order", registry.getOrderSubscriptions(), registry::getOrderListener, snapshots, caches);
+		return subscriptions;
+	}
+
+	/*
+	 * 各监听器所属消费者中对应 Topic 的本地缓存占用，按监听器实例索引；同一监听器注册到多个消费者时取最后一个
+	 */
+	private Map<Object, Map<String, Object>> caches() {
+		Map<Object, Map<String, Object>> caches = new IdentityHashMap<>();
+		for (Map.Entry<String, Admin> entry : refresher.getConsumers().entrySet()) {
+			Map<String, Map<String, Object>> usage = OnsConsumerCache.usage(entry.getValue());
+			if (usage.isEmpty()) {
+				continue;
+			}
+			for (Map.Entry<Subscription, ?> subscription : OnsConsumerCache.subscriptions(entry.getValue()).entrySet()) {
+				Map<String, Object> topicUsage = usage.get(subscription.getKey().getTopic());
+				if (topicUsage != null) {
+					Map<String, Object> cache = new LinkedHashMap<>();
+					cache.put("consumer", entry.getKey());
+					cache.putAll(topicUsage);
+					caches.put(subscription.getValue(), cache);
+				}
+			}
+		}
+		return caches;
+	}
+
+	private void collect(List<Map<String, Object>> subscriptions, String type, Map<String, Subscription> table,
+			Function<String, Object> listeners, Map<String, AliyunOnsConsumeMetrics.Snapshot> snapshots,
+			Map<Object, Map<String, Object>> caches) {
+		for (Map.Entry<String, Subscription> entry : table.entrySet()) {
+			Subscription subscription = entry.getValue();
+			Map<String, Object> detail = new LinkedHashMap<>();
+			detail.put("bean", entry.getKey());
+			detail.put("type", type);
+			detail.put("topic", subscription.getTopic());
+			detail.put("expression", subscription.getExpression());
+			AliyunOnsConsumeMetrics.Snapshot snapshot = snapshots.get(entry.getKey());
+			if (snapshot != null) {
+				detail.put("messagesPerSecond", snapshot.getMessagesPerSecond());
+				detail.put("consumed", snapshot.getConsumed());
+				detail.put("failed", snapshot.getFailed());
+				detail.put("inFlight", snapshot.getInFlight());
+				detail.put("lastConsumedTimestamp", snapshot.getLastConsumedTimestamp());
+				Map<String, Object> latency = new LinkedHashMap<>(5);
+				latency.put("p50", snapshot.getP50());
+				latency.put("p90", snapshot.getP90());
+				latency.put("p99", snapshot.getP99());
+				latency.put("p999", snapshot.getP999());
+				latency.put("max", snapshot.getMax());
+				detail.put("latencyMillis", latency);
+			}
+			// 缓存上限按 Topic 生效，同一消费者订阅该 Topic 的所有监听器共用；消费者未启动或无法读取时不返回
+			Map<String, Object> cache = caches.get(listeners.apply(entry.getKey()));
+			if (cache != null) {
+				detail.put("cache", cache);
+			}
+			subscriptions.add(detail);
+		}
+	}
+
+	static Map<String, Object> pool(AliyunOnsMqTemplate onsMqTemplate) {
+		ThreadPoolExecutor threadPool = onsMqTemplate.getThreadPool();
+		Map<String, Object> pool = new LinkedHashMap<>();
+		pool.put("corePoolSize", threadPool.getCorePoolSize());
+		pool.put("maximumPoolSize", threadPool.getMaximumPoolSize());
+		pool.put("poolSize", threadPool.getPoolSize());
+		pool.put("activeCount", threadPool.getActiveCount());
+		pool.put("queueSize", threadPool.getQueue().size());
+		pool.put("queueRemainingCapacity", threadPool.getQueue().remainingCapacity());
+		pool.put("completedTaskCount", threadPool.getCompletedTaskCount());
+		pool.put("rejectedCount", onsMqTemplate.getRejectedCount());
+		return pool;
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.aliyun.openservices.spring.boot.actuate;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.spring.boot.AbstractLazyAdmin;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.AliyunOnsRefresher;
+
+/**
+ * ONS 健康检查：任一已启动的客户端被关闭时为 DOWN，因刷新配置正在重启的消费者标记为 restarting，不影响健康状态；
+ * 多线程发送线程池队列写满时标记 saturated
+ */
+public class AliyunOnsHealthIndicator extends AbstractHealthIndicator {
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final ListableBeanFactory beanFactory;
+
+	private final AliyunOnsRefresher refresher;
+
+	public AliyunOnsHealthIndicator(AliyunOnsMqTemplate onsMqTemplate, ListableBeanFactory beanFactory, AliyunOnsRefresher refresher) {
+		super("ONS health check failed");
+		this.onsMqTemplate = onsMqTemplate;
+		this.beanFactory = beanFactory;
+		this.refresher = refresher;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) throws Exception {
+		builder.up();
+		for (Map.Entry<String, Admin> entry : beanFactory.getBeansOfType(Admin.class).entrySet()) {
+			String state = refresher != null && refresher.isRestarting(entry.getKey()) ? "restarting" : this.state(entry.getValue());
+			builder.withDetail(entry.getKey(), state);
+			if ("closed".equals(state)) {
+				builder.down();
+			}
+		}
+		Map<String, Object> pool = AliyunOnsEndpoint.pool(onsMqTemplate);
+		pool.put("saturated", onsMqTemplate.getThreadPool().getQueue().remainingCapacity() == 0);
+		builder.withDetail("pool", pool);
+	}
+
+	private String state(Admin client) {
+		try {
+			if (client.isStarted()) {
+				return "started";
+			}
+			return client.isClosed() ? "closed" : (client instanceof AbstractLazyAdmin ? "lazy" : "stopped");
+		} catch (RuntimeException e) {
+			// ProducerBean 等在未启动时调用 isStarted() 会抛出空指针异常
+			return "stopped";
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.aliyun.openservices.spring.boot.actuate;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.ons.api.bean.BatchConsumerBean;
+import com.aliyun.openservices.ons.api.bean.ConsumerBean;
+import com.aliyun.openservices.ons.api.bean.OrderConsumerBean;
+import com.aliyun.openservices.ons.api.bean.Subscription;
+import com.aliyun.openservices.ons.api.impl.rocketmq.ONSConsumerAbstract;
+import com.aliyun.openservices.shade.com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.aliyun.openservices.shade.com.alibaba.rocketmq.client.impl.consumer.DefaultMQPushConsumerImpl;
+import com.aliyun.openservices.shade.com.alibaba.rocketmq.client.impl.consumer.ProcessQueue;
+import com.aliyun.openservices.shade.com.alibaba.rocketmq.common.message.MessageQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 消费者本地缓存的实际占用：ons-client 按 Topic 限制本地缓存（maxCachedMessageAmount、maxCachedMessageSizeInMiB），但未公开占用情况，
+ * 这里通过反射取得消费者内部的 {@link DefaultMQPushConsumer}，汇总其各队列 {@link ProcessQueue} 中已拉取未消费的消息数与大小；
+ * 消费者未启动或客户端版本不兼容时返回空
+ */
+@Slf4j
+final class OnsConsumerCache {
+
+	private static final Field CONSUMER = field(ConsumerBean.class, "consumer");
+
+	private static final Field BATCH_CONSUMER = field(BatchConsumerBean.class, "batchConsumer");
+
+	private static final Field ORDER_CONSUMER = field(OrderConsumerBean.class, "orderConsumer");
+
+	private static final Field PUSH_CONSUMER = field(ONSConsumerAbstract.class, "defaultMQPushConsumer");
+
+	private static final double MIB = 1024 * 1024;
+
+	private OnsConsumerCache() {
+	}
+
+	/*
+	 * 消费者订阅的各 Topic 的缓存占用与上限
+	 *
+	 * @param consumer ConsumerBean、BatchConsumerBean 或 OrderConsumerBean
+	 * @return topic -> 缓存占用，无法读取时为空
+	 */
+	static Map<String, Map<String, Object>> usage(Admin consumer) {
+		DefaultMQPushConsumer pushConsumer = pushConsumer(consumer);
+		if (pushConsumer == null) {
+			return Collections.emptyMap();
+		}
+		DefaultMQPushConsumerImpl impl = pushConsumer.getDefaultMQPushConsumerImpl();
+		if (impl == null || impl.getRebalanceImpl() == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, long[]> totals = new LinkedHashMap<>();
+		for (Subscription subscription : subscriptions(consumer).keySet()) {
+			totals.put(subscription.getTopic(), new long[2]);
+		}
+		for (Map.Entry<MessageQueue, ProcessQueue> entry : impl.getRebalanceImpl().getProcessQueueTable().entrySet()) {
+			ProcessQueue queue = entry.getValue();
+			long[] total = totals.get(entry.getKey().getTopic());
+			if (total == null || queue.isDropped()) {
+				// 重试 Topic 等未订阅的队列不计入
+				continue;
+			}
+			total[0] += queue.getMsgCount().get();
+			total[1] += queue.getMsgSize().get();
+		}
+		Map<String, Map<String, Object>> usage = new LinkedHashMap<>(totals.size());
+		for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+			Map<String, Object> cache = new LinkedHashMap<>(4);
+			cache.put("cachedMessageCount", entry.getValue()[0]);
+			cache.put("cachedMessageSizeInMiB", entry.getValue()[1] / MIB);
+			cache.put("maxCachedMessageAmount", pushConsumer.getPullThresholdForTopic());
+			cache.put("maxCachedMessageSizeInMiB", pushConsumer.getPullThresholdSizeForTopic());
+			usage.put(entry.getKey(), cache);
+		}
+		return usage;
+	}
+
+	/*
+	 * 消费者的订阅关系
+	 *
+	 * @return 订阅关系 -> 监听器
+	 */
+	static Map<Subscription, ?> subscriptions(Admin consumer) {
+		Map<Subscription, ?> table = null;
+		if (consumer instanceof ConsumerBean) {
+			table = ((ConsumerBean) consumer).getSubscriptionTable();
+		} else if (consumer instanceof BatchConsumerBean) {
+			table = ((BatchConsumerBean) consumer).getSubscriptionTable();
+		} else if (consumer instanceof OrderConsumerBean) {
+			table = ((OrderConsumerBean) consumer).getSubscriptionTable();
+		}
+		return table != null ? table : Collections.emptyMap();
+	}
+
+	private static DefaultMQPushConsumer pushConsumer(Admin consumer) {
+		Field field = consumer instanceof ConsumerBean ? CONSUMER
+				: consumer instanceof BatchConsumerBean ? BATCH_CONSUMER : consumer instanceof OrderConsumerBean ? ORDER_CONSUMER : null;
+		if (field == null || PUSH_CONSUMER == null) {
+			return null;
+		}
+		try {
+			Object client = field.get(consumer);
+			return client instanceof ONSConsumerAbstract ? (DefaultMQPushConsumer) PUSH_CONSUMER.get(client) : null;
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static Field field(Class<?> type, String name) {
+		try {
+			Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			log.warn("ONS consumer cache usage unavailable, {}.{} not accessible: {}", type.getSimpleName(), name, e.getMessage());
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.aliyun.openservices.spring.boot.annotation;
+
+
+import java.lang.annotation.*;
+
+/*
+ * 由 AliyunOnsClientStarter 在上下文刷新完成后统一（并行）启动的客户端，
+ * 标注在返回 Consumer/BatchConsumer/OrderConsumer 等 Admin 的 @Bean 方法或客户端类上；未标注的客户端由使用方自行启动
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface ManagedStartup {
+
+}
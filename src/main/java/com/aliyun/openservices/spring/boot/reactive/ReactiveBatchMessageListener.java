@@ -0,0 +1,64 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.AbstractBatchListenerSupport;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * 响应式批量消费者监听：配合 {@link com.aliyun.openservices.spring.boot.annotation.BatchMessageConsumer} 使用，
+ * 批内消息逐条按订阅方请求量发射，仅支持一个订阅方
+ * 整批经过与其他批量监听器相同的消费流程，全部消息确认后才提交整批；任一消息等待请求量或确认超时、
+ * 或被 {@link ReactiveMessage#nack(Throwable)} 时整批稍后重新消费，已确认的消息会被重复投递。
+ * 消费线程最多阻塞 {@link #awaitTimeoutMillis()}（默认 30 秒），该时间必须小于 consumeTimeout（分钟）
+ */
+@Slf4j
+public class ReactiveBatchMessageListener extends AbstractBatchListenerSupport {
+
+	private final ReactiveMessageEmitter emitter = new ReactiveMessageEmitter();
+
+	/*
+	 * 等待订阅方请求并确认整批消息的最长时间，超时后稍后重新消费，单位：毫秒
+	 */
+	protected long awaitTimeoutMillis() {
+		return 30000;
+	}
+
+	public Flux<ReactiveMessage> flux() {
+		return emitter.flux();
+	}
+
+	@Override
+	protected Action doConsume(List<Message> messages, ConsumeContext context) {
+		long deadline = System.currentTimeMillis() + this.awaitTimeoutMillis();
+		List<CompletableFuture<Void>> completions = new ArrayList<>(messages.size());
+		for (Message message : messages) {
+			ReactiveMessage reactiveMessage = new ReactiveMessage(message, this.body(message));
+			if (!emitter.emit(reactiveMessage, Math.max(deadline - System.currentTimeMillis(), 0))) {
+				log.warn("ReactiveBatchMessageListener no demand, reconsume later msgKey:{},topic:{}", message.getKey(), message.getTopic());
+				return Action.ReconsumeLater;
+			}
+			completions.add(reactiveMessage.completion());
+		}
+		try {
+			CompletableFuture.allOf(completions.toArray(new CompletableFuture<?>[0]))
+					.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+			return Action.CommitMessage;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Action.ReconsumeLater;
+		} catch (Exception e) {
+			log.warn("ReactiveBatchMessageListener batch not acknowledged, size:{}, reconsume later: {}", messages.size(), e.toString());
+			return Action.ReconsumeLater;
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.OnsMessageBody;
+
+/**
+ * 响应式订阅发射的消息：订阅方处理完成后必须调用 {@link #ack()} 或 {@link #nack(Throwable)}，
+ * 消费线程等到确认后才提交消息，未确认或确认失败时稍后重新消费（至少一次）
+ */
+public class ReactiveMessage {
+
+	private final Message message;
+
+	private final OnsMessageBody body;
+
+	private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+	ReactiveMessage(Message message, OnsMessageBody body) {
+		this.message = message;
+		this.body = body;
+	}
+
+	public Message getMessage() {
+		return message;
+	}
+
+	/*
+	 * 消息体句柄，claim-check 转存的消息体在读取时才打开
+	 */
+	public OnsMessageBody getBody() {
+		return body;
+	}
+
+	/*
+	 * 处理成功，消息可以提交；重复确认或超时后确认无效
+	 */
+	public void ack() {
+		completion.complete(null);
+	}
+
+	/*
+	 * 处理失败，消息稍后重新消费
+	 *
+	 * @param cause 失败原因
+	 */
+	public void nack(Throwable cause) {
+		completion.completeExceptionally(cause);
+	}
+
+	CompletableFuture<Void> completion() {
+		return completion;
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * 将 ONS 消费线程推送的消息按订阅方的请求量（demand）发射到 {@link Flux}
+ * 订阅方没有请求量时消费线程阻塞等待，客户端本地缓存写满后停止拉取，从而把背压传导到 Broker
+ */
+class ReactiveMessageEmitter {
+
+	private final Object monitor = new Object();
+
+	private final Flux<ReactiveMessage> flux;
+
+	private FluxSink<ReactiveMessage> sink;
+
+	/*
+	 * 订阅方尚未满足的请求量
+	 */
+	private long demand;
+
+	ReactiveMessageEmitter() {
+		this.flux = Flux.create(this::attach);
+	}
+
+	Flux<ReactiveMessage> flux() {
+		return flux;
+	}
+
+	private void attach(FluxSink<ReactiveMessage> newSink) {
+		synchronized (monitor) {
+			if (sink != null) {
+				newSink.error(new IllegalStateException("Reactive message listener allows only one subscriber"));
+				return;
+			}
+			this.sink = newSink;
+			this.demand = 0;
+		}
+		newSink.onRequest(n -> {
+			synchronized (monitor) {
+				if (sink == newSink) {
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+					monitor.notifyAll();
+				}
+			}
+		});
+		newSink.onDispose(() -> {
+			synchronized (monitor) {
+				if (sink == newSink) {
+					sink = null;
+					demand = 0;
+				}
+			}
+		});
+	}
+
+	/*
+	 * 等待订阅方请求后发射消息，不等待订阅方确认
+	 *
+	 * @param message
+	 * @param timeoutMillis 最长等待时间
+	 * @return 是否已发射，未发射时消息应稍后重新消费
+	 */
+	boolean emit(ReactiveMessage message, long timeoutMillis) {
+		FluxSink<ReactiveMessage> target;
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (monitor) {
+			while (sink == null || demand == 0) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				try {
+					monitor.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			if (demand != Long.MAX_VALUE) {
+				demand--;
+			}
+			target = sink;
+		}
+		target.next(message);
+		return true;
+	}
+
+}
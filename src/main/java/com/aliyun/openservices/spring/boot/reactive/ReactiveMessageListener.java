@@ -0,0 +1,53 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.AbstractMessageListener;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 响应式消费者监听：配合 {@link com.aliyun.openservices.spring.boot.annotation.MessageConsumer} 使用，
+ * 通过 {@link #flux()} 或 {@link ReactiveOnsTemplate#receive(String)} 订阅，仅支持一个订阅方
+ * 与其他抽象监听器一样经过链路追踪、背压、消费指标、claim-check 与看门狗；消息发射后消费线程阻塞等待订阅方
+ * {@link ReactiveMessage#ack()}，确认后才提交，{@link ReactiveMessage#nack(Throwable)} 或超时则稍后重新消费（至少一次）。
+ * 每条消息最多占用一个消费线程 {@link #awaitTimeoutMillis()}（默认 30 秒，包括等待请求量与等待确认），
+ * 该时间必须小于 consumeTimeout（分钟），开启看门狗 abandon 时还受软截止时间限制
+ */
+public class ReactiveMessageListener extends AbstractMessageListener {
+
+	private final ReactiveMessageEmitter emitter = new ReactiveMessageEmitter();
+
+	/*
+	 * 等待订阅方请求并确认的最长时间，超时后稍后重新消费，单位：毫秒
+	 */
+	protected long awaitTimeoutMillis() {
+		return 30000;
+	}
+
+	public Flux<ReactiveMessage> flux() {
+		return emitter.flux();
+	}
+
+	/*
+	 * 响应式订阅不做重复消费判断，需要时由订阅方处理或覆盖该方法
+	 */
+	@Override
+	public int apply(Message message) {
+		return 0;
+	}
+
+	@Override
+	public void consume(int count, Message message) throws Exception {
+		long deadline = System.currentTimeMillis() + this.awaitTimeoutMillis();
+		ReactiveMessage reactiveMessage = new ReactiveMessage(message, this.body(message));
+		if (!emitter.emit(reactiveMessage, this.awaitTimeoutMillis())) {
+			throw new TimeoutException("no demand from subscriber within " + this.awaitTimeoutMillis() + " ms");
+		}
+		// 超时未确认时稍后重新消费，订阅方之后的确认不再生效
+		reactiveMessage.completion().get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+	}
+
+}
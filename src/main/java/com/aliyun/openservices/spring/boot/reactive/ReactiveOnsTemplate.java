@@ -0,0 +1,118 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import java.util.concurrent.Callable;
+
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.MessageListener;
+import com.aliyun.openservices.ons.api.OnExceptionContext;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendCallback;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.ons.api.batch.BatchMessageListener;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * 基于 Project Reactor 的消息发送与订阅
+ * 发送前处理与 producer 调用都在 scheduler 上执行，不会阻塞事件循环线程；
+ * 链路追踪上下文在调用 send/sendOrder 的线程上捕获，在 scheduler 上执行发送前处理时恢复
+ */
+@Slf4j
+public class ReactiveOnsTemplate {
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final Scheduler scheduler;
+
+	public ReactiveOnsTemplate(AliyunOnsMqTemplate onsMqTemplate, Scheduler scheduler) {
+		this.onsMqTemplate = onsMqTemplate;
+		this.scheduler = scheduler;
+	}
+
+	/*
+	 * 发送消息
+	 *
+	 * @param producer
+	 * @param message
+	 * @return
+	 */
+	public Mono<SendResult> send(Producer producer, Message message) {
+		Callable<Message> prepare = onsMqTemplate.propagate(() -> {
+			onsMqTemplate.beforeSend(message);
+			return message;
+		});
+		return Mono.fromCallable(prepare).flatMap(prepared -> Mono.<SendResult>create(sink -> {
+			producer.sendAsync(prepared, new SendCallback() {
+
+				@Override
+				public void onSuccess(SendResult sendResult) {
+					sink.success(sendResult);
+				}
+
+				@Override
+				public void onException(OnExceptionContext context) {
+					sink.error(context.getException());
+				}
+
+			});
+		})).subscribeOn(scheduler)
+		  .doOnError(e -> log.error(" Send mq message failed. Topic is: {}, msgId: {}, error : {}", message.getTopic(), message.getMsgID(), e.getMessage()));
+	}
+
+	/*
+	 * 以有限并发发送消息流
+	 *
+	 * @param producer
+	 * @param messages
+	 * @param concurrency 同时在途的最大发送数
+	 * @return
+	 */
+	public Flux<SendResult> send(Producer producer, Publisher<Message> messages, int concurrency) {
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+		return Flux.from(messages).flatMap(message -> this.send(producer, message), concurrency);
+	}
+
+	/*
+	 * 发送顺序消息，顺序消息没有异步接口，在 scheduler 上同步发送
+	 *
+	 * @param producer
+	 * @param message
+	 * @param shardingKey 顺序消息选择因子
+	 * @return
+	 */
+	public Mono<SendResult> sendOrder(OrderProducer producer, Message message, String shardingKey) {
+		return Mono.fromCallable(onsMqTemplate.propagate(() -> {
+			onsMqTemplate.beforeSend(message);
+			return producer.send(message, shardingKey);
+		})).subscribeOn(scheduler)
+		  .doOnError(e -> log.error(" Send mq message failed. Topic is: {}, msgId: {}, error : {}", message.getTopic(), message.getMsgID(), e.getMessage()));
+	}
+
+	/*
+	 * 订阅 {@link com.aliyun.openservices.spring.boot.annotation.MessageConsumer} 或
+	 * {@link com.aliyun.openservices.spring.boot.annotation.BatchMessageConsumer} 标注的响应式监听器
+	 *
+	 * @param beanName 继承 {@link ReactiveMessageListener} 或 {@link ReactiveBatchMessageListener} 的监听器 beanName
+	 * @return 处理完成后需调用 {@link ReactiveMessage#ack()} 的消息，未确认的消息稍后重新消费
+	 */
+	public Flux<ReactiveMessage> receive(String beanName) {
+		MessageListener messageListener = onsMqTemplate.getSubscriptionRegistry().getListener(beanName);
+		if (messageListener instanceof ReactiveMessageListener) {
+			return ((ReactiveMessageListener) messageListener).flux();
+		}
+		BatchMessageListener batchMessageListener = onsMqTemplate.getSubscriptionRegistry().getBatchListener(beanName);
+		if (batchMessageListener instanceof ReactiveBatchMessageListener) {
+			return ((ReactiveBatchMessageListener) batchMessageListener).flux();
+		}
+		return Flux.error(new IllegalArgumentException("Bean [" + beanName + "] is not a reactive message listener"));
+	}
+
+}
@@ -0,0 +1,322 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.util.Assert;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.RateLimiter;
+import com.aliyun.openservices.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.AliyunOnsReplayProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 消息回放：从本地文件读取历史消息，通过 {@link AliyunOnsMqTemplate} 并行重新发送
+ * 读取线程（即调用线程）按 Topic 限速后将消息分发给发送线程，在途消息数不超过 maxInFlight；
+ * 带 shardingKey 的消息按 shardingKey 固定到同一个单线程通道，以顺序消息发送，保持文件中的先后顺序；
+ * 断点为最早一条尚未发送成功的消息的位置，定期写入断点文件，再次回放同一文件时从断点继续。
+ * 断点之后已发送成功的消息在续传时会再次发送（至少一次），消费端应通过 apply() 幂等去重
+ */
+@Slf4j
+public class AliyunOnsReplayer {
+
+	public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+	private final AliyunOnsReplayProperties replayProperties;
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final Producer producer;
+
+	private final OrderProducer orderProducer;
+
+	public AliyunOnsReplayer(AliyunOnsReplayProperties replayProperties, AliyunOnsMqTemplate onsMqTemplate, Producer producer,
+			OrderProducer orderProducer) {
+		Assert.isTrue(replayProperties.getParallelism() > 0, "parallelism must be greater than 0");
+		Assert.isTrue(replayProperties.getMaxInFlight() > 0, "maxInFlight must be greater than 0");
+		this.replayProperties = replayProperties;
+		this.onsMqTemplate = onsMqTemplate;
+		this.producer = producer;
+		this.orderProducer = orderProducer;
+	}
+
+	/*
+	 * 回放文件，断点保存在同目录下的 {文件名}.checkpoint 中
+	 *
+	 * @param file 回放文件
+	 */
+	public OnsReplayResult replay(Path file) throws IOException, InterruptedException {
+		return this.replay(file, file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX));
+	}
+
+	/*
+	 * 回放文件
+	 *
+	 * @param file           回放文件
+	 * @param checkpointFile 断点文件，存在时从断点继续
+	 * @return 回放结果；有消息重试用尽仍发送失败时回放提前结束，{@link OnsReplayResult#isComplete()} 为 false
+	 * @throws IOException          读取回放文件或写入断点失败，已保存的断点仍然有效
+	 * @throws InterruptedException 调用线程被中断，中断前已保存断点
+	 */
+	public OnsReplayResult replay(Path file, Path checkpointFile) throws IOException, InterruptedException {
+		try (OnsReplaySource source = OnsReplaySource.open(file, replayProperties.getMappedRegionSize())) {
+			long start = readCheckpoint(checkpointFile, source.size());
+			if (start > 0) {
+				log.info("Replay {} resumed from position {}", file, start);
+			}
+			return new Session(file, checkpointFile.toAbsolutePath(), source, start).run();
+		}
+	}
+
+	private static long readCheckpoint(Path checkpointFile, long size) throws IOException {
+		if (!Files.exists(checkpointFile)) {
+			return 0;
+		}
+		Properties checkpoint = new Properties();
+		try (InputStream in = Files.newInputStream(checkpointFile)) {
+			checkpoint.load(in);
+		}
+		long position = Long.parseLong(checkpoint.getProperty("position", "0"));
+		if (position > size) {
+			throw new IllegalStateException("Checkpoint " + checkpointFile + " (position " + position
+					+ ") is beyond the end of the replay file (" + size + " bytes), the file may have been replaced");
+		}
+		return position;
+	}
+
+	private static void writeCheckpoint(Path checkpointFile, long position, long size) throws IOException {
+		Properties checkpoint = new Properties();
+		checkpoint.setProperty("position", String.valueOf(position));
+		checkpoint.setProperty("size", String.valueOf(size));
+		Path directory = checkpointFile.getParent();
+		Files.createDirectories(directory);
+		// 先写临时文件再原子重命名，避免进程退出时留下写了一半的断点
+		Path temp = Files.createTempFile(directory, ".", ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				checkpoint.store(out, null);
+			}
+			Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * 一次回放的状态，除发送线程更新的计数与在途集合外只由读取线程访问
+	 */
+	private final class Session {
+
+		private final Path file;
+
+		private final Path checkpointFile;
+
+		private final OnsReplaySource source;
+
+		private final long size;
+
+		private final Semaphore permits;
+
+		/*
+		 * 在途（已分发、未发送成功）消息的起始位置，最小值即断点；重试用尽的消息不会移除，断点停在它之前
+		 */
+		private final ConcurrentSkipListSet<Long> inflight = new ConcurrentSkipListSet<>();
+
+		private final LongAdder sent = new LongAdder();
+
+		private final LongAdder failed = new LongAdder();
+
+		private final LongAdder retried = new LongAdder();
+
+		private final Map<String, RateLimiter> rateLimiters = new HashMap<>();
+
+		private final ExecutorService executor;
+
+		private final ExecutorService[] lanes;
+
+		private final long begin = System.currentTimeMillis();
+
+		/*
+		 * 最后一条已分发消息的结束位置
+		 */
+		private long dispatched;
+
+		private long lastCheckpointAt = begin;
+
+		private long nextCheckpointAt;
+
+		private long lastSent;
+
+		private volatile boolean stopped = false;
+
+		Session(Path file, Path checkpointFile, OnsReplaySource source, long start) throws IOException {
+			this.file = file;
+			this.checkpointFile = checkpointFile;
+			this.source = source;
+			this.size = source.size();
+			this.permits = new Semaphore(replayProperties.getMaxInFlight());
+			this.dispatched = start;
+			this.nextCheckpointAt = begin + replayProperties.getCheckpointIntervalMillis();
+			this.executor = Executors.newFixedThreadPool(replayProperties.getParallelism(),
+					new ThreadFactoryBuilder().setNameFormat("ons-replay-%d").setDaemon(true).build());
+			this.lanes = new ExecutorService[replayProperties.getParallelism()];
+			for (int i = 0; i < lanes.length; i++) {
+				lanes[i] = Executors.newSingleThreadExecutor(
+						new ThreadFactoryBuilder().setNameFormat("ons-replay-lane-" + i).setDaemon(true).build());
+			}
+			source.seek(start);
+		}
+
+		OnsReplayResult run() throws IOException, InterruptedException {
+			boolean completed = false;
+			try {
+				OnsReplayRecord record;
+				while (!stopped && (record = source.next()) != null) {
+					this.dispatch(record);
+				}
+				// 等待在途消息发送完成
+				while (!permits.tryAcquire(replayProperties.getMaxInFlight(), replayProperties.getCheckpointIntervalMillis(), TimeUnit.MILLISECONDS)) {
+					this.checkpoint(false);
+				}
+				permits.release(replayProperties.getMaxInFlight());
+				completed = true;
+			} finally {
+				this.shutdown(completed);
+				this.checkpoint(true);
+			}
+			return new OnsReplayResult(sent.sum(), failed.sum(), retried.sum(), this.position(), size,
+					System.currentTimeMillis() - begin);
+		}
+
+		private void dispatch(OnsReplayRecord record) throws InterruptedException, IOException {
+			boolean ordered = record.getShardingKey() != null && orderProducer != null;
+			if (!ordered && producer == null) {
+				throw new IllegalStateException("No Producer available for the message at position " + record.getPosition() + " of " + file);
+			}
+			RateLimiter rateLimiter = this.rateLimiter(record.getMessage().getTopic());
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+			while (!permits.tryAcquire(replayProperties.getCheckpointIntervalMillis(), TimeUnit.MILLISECONDS)) {
+				this.checkpoint(false);
+			}
+			inflight.add(record.getPosition());
+			this.dispatched = record.getNextPosition();
+			// shardingKey 相同的消息进入同一个单线程通道，按文件中的顺序发送
+			ExecutorService target = record.getShardingKey() == null ? executor
+					: lanes[(record.getShardingKey().hashCode() & Integer.MAX_VALUE) % lanes.length];
+			target.execute(() -> this.send(record, ordered));
+			this.checkpoint(false);
+		}
+
+		private void send(OnsReplayRecord record, boolean ordered) {
+			try {
+				if (stopped) {
+					return;
+				}
+				Message message = record.getMessage();
+				for (int attempt = 0;; attempt++) {
+					boolean success;
+					try {
+						success = ordered ? onsMqTemplate.sendOrderMes(orderProducer, message, record.getShardingKey())
+								: onsMqTemplate.sendSyncMes(producer, message);
+					} catch (RuntimeException e) {
+						// 如消息缺少 Key，重试无意义
+						log.error("Replay message at position {} rejected: {}", record.getPosition(), e.getMessage());
+						break;
+					}
+					if (success) {
+						inflight.remove(record.getPosition());
+						sent.increment();
+						return;
+					}
+					if (attempt >= replayProperties.getMaxRetries() || stopped) {
+						break;
+					}
+					retried.increment();
+					Thread.sleep(replayProperties.getRetryBackoffMillis());
+				}
+				failed.increment();
+				// 停止分发，后续消息（包括同一 shardingKey 的消息）不再发送，保证续传时的顺序
+				this.stopped = true;
+				log.error("Replay of {} stopped: message at position {} failed after {} retries, topic: {}, key: {}", file,
+						record.getPosition(), replayProperties.getMaxRetries(), message.getTopic(), message.getKey());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				permits.release();
+			}
+		}
+
+		private RateLimiter rateLimiter(String topic) {
+			RateLimiter rateLimiter = rateLimiters.get(topic);
+			if (rateLimiter == null && !rateLimiters.containsKey(topic)) {
+				Double rate = replayProperties.getRateLimits().getOrDefault(topic, replayProperties.getDefaultRateLimit());
+				rateLimiter = rate != null && rate > 0 ? RateLimiter.create(rate) : null;
+				rateLimiters.put(topic, rateLimiter);
+			}
+			return rateLimiter;
+		}
+
+		/*
+		 * 断点：最早一条在途消息的位置，没有在途消息时为最后一条已分发消息的结束位置
+		 * 在途集合的写入先于 dispatched 的更新，且都在读取线程中，这里读到的值不会越过未发送成功的消息
+		 */
+		private long position() {
+			Iterator<Long> iterator = inflight.iterator();
+			return iterator.hasNext() ? Math.min(iterator.next(), dispatched) : dispatched;
+		}
+
+		private void checkpoint(boolean force) throws IOException {
+			long now = System.currentTimeMillis();
+			if (!force && now < nextCheckpointAt) {
+				return;
+			}
+			long elapsed = now - lastCheckpointAt;
+			this.lastCheckpointAt = now;
+			this.nextCheckpointAt = now + replayProperties.getCheckpointIntervalMillis();
+			long position = this.position();
+			writeCheckpoint(checkpointFile, position, size);
+			long total = sent.sum();
+			log.info("Replay {}: {}/{} bytes ({}%), sent: {}, failed: {}, retried: {}, {} msg/s", file, position, size,
+					size == 0 ? 100 : position * 100 / size, total, failed.sum(), retried.sum(),
+					elapsed > 0 ? (total - lastSent) * 1000 / elapsed : 0);
+			this.lastSent = total;
+		}
+
+		/*
+		 * 正常结束时所有消息都已发送；异常结束时放弃排队中的消息，它们的位置仍在在途集合中，断点不会越过它们
+		 */
+		private void shutdown(boolean completed) {
+			if (!completed) {
+				this.stopped = true;
+			}
+			executor.shutdown();
+			for (ExecutorService lane : lanes) {
+				lane.shutdown();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 紧凑二进制格式的回放文件，由 {@link BinaryReplayWriter} 写入：
+ * 文件头为 4 字节 {@link #MAGIC} 与 4 字节版本号，之后每条记录为 4 字节记录长度 + 记录内容；
+ * 记录内容依次为 topic、tag、key、shardingKey、用户属性（数量 + 键值对）、消息体，
+ * 字符串与消息体均为 4 字节长度（-1 表示 null）+ UTF-8/原始字节，整数均为大端序
+ */
+public class BinaryReplaySource extends MappedReplaySource {
+
+	public static final byte[] MAGIC = { 'O', 'N', 'S', 'R' };
+
+	public static final int FORMAT_VERSION = 1;
+
+	static final int HEADER_LENGTH = MAGIC.length + 4;
+
+	private long position = HEADER_LENGTH;
+
+	public BinaryReplaySource(Path file, int regionSize) throws IOException {
+		super(file, regionSize);
+		if (this.size() < HEADER_LENGTH) {
+			throw new IOException("Not a replay file: " + file);
+		}
+		ByteBuffer header = this.region(0, HEADER_LENGTH);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (header.get(i) != MAGIC[i]) {
+				throw new IOException("Not a replay file: " + file);
+			}
+		}
+		int version = header.getInt(MAGIC.length);
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported replay file " + file + " (version " + version + ")");
+		}
+	}
+
+	/*
+	 * 是否以 {@link #MAGIC} 开头
+	 */
+	public static boolean isBinary(Path file) throws IOException {
+		byte[] head = new byte[MAGIC.length];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read = 0;
+			while (read < head.length) {
+				int n = in.read(head, read, head.length - read);
+				if (n < 0) {
+					return false;
+				}
+				read += n;
+			}
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (head[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void seek(long position) {
+		this.position = Math.max(position, HEADER_LENGTH);
+	}
+
+	@Override
+	public OnsReplayRecord next() throws IOException {
+		if (position >= this.size()) {
+			return null;
+		}
+		long start = position;
+		if (start + 4 > this.size()) {
+			throw new IOException("Truncated replay record at position " + start);
+		}
+		int length = this.region(start, 4).getInt((int) (start - this.regionStart()));
+		if (length < 0 || start + 4 + length > this.size()) {
+			throw new IOException("Truncated replay record at position " + start);
+		}
+		MappedByteBuffer region = this.region(start, 4L + length);
+		ByteBuffer record = region.duplicate();
+		int offset = (int) (start - this.regionStart()) + 4;
+		record.limit(offset + length).position(offset);
+		try {
+			Message message = new Message();
+			message.setTopic(readString(record));
+			message.setTag(readString(record));
+			message.setKey(readString(record));
+			String shardingKey = readString(record);
+			int size = record.getInt();
+			for (int i = 0; i < size; i++) {
+				message.putUserProperties(readString(record), readString(record));
+			}
+			message.setBody(readBytes(record));
+			this.position = start + 4 + length;
+			return new OnsReplayRecord(message, shardingKey, start, position);
+		} catch (RuntimeException e) {
+			throw new IOException("Illegal replay record at position " + start + ": " + e, e);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = readBytes(buffer);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+}
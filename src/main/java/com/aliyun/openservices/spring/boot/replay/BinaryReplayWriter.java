@@ -0,0 +1,91 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 写入 {@link BinaryReplaySource} 格式的回放文件，如从数据库或 JSON Lines 导出历史消息；非线程安全
+ */
+public class BinaryReplayWriter implements Closeable {
+
+	private final DataOutputStream out;
+
+	public BinaryReplayWriter(Path file) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		out.write(BinaryReplaySource.MAGIC);
+		out.writeInt(BinaryReplaySource.FORMAT_VERSION);
+	}
+
+	/*
+	 * 写入一条消息
+	 *
+	 * @param message
+	 * @param shardingKey 顺序消息选择因子，普通消息为 null
+	 */
+	public void write(Message message, String shardingKey) throws IOException {
+		byte[] topic = bytes(message.getTopic());
+		byte[] tag = bytes(message.getTag());
+		byte[] key = bytes(message.getKey());
+		byte[] sharding = bytes(shardingKey);
+		Properties userProperties = message.getUserProperties();
+		int size = userProperties == null ? 0 : userProperties.size();
+		byte[][] properties = new byte[size * 2][];
+		int length = length(topic) + length(tag) + length(key) + length(sharding) + 4;
+		if (size > 0) {
+			int i = 0;
+			for (String name : userProperties.stringPropertyNames()) {
+				properties[i] = bytes(name);
+				properties[i + 1] = bytes(userProperties.getProperty(name));
+				length += length(properties[i]) + length(properties[i + 1]);
+				i += 2;
+			}
+		}
+		byte[] body = message.getBody() == null ? new byte[0] : message.getBody();
+		length += length(body);
+		out.writeInt(length);
+		this.write(topic);
+		this.write(tag);
+		this.write(key);
+		this.write(sharding);
+		out.writeInt(size);
+		for (byte[] property : properties) {
+			this.write(property);
+		}
+		this.write(body);
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		if (bytes == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] bytes(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int length(byte[] bytes) {
+		return 4 + (bytes == null ? 0 : bytes.length);
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
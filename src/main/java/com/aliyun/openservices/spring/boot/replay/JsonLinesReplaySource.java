@@ -0,0 +1,145 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Map;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.shade.com.alibaba.fastjson.JSON;
+import com.aliyun.openservices.shade.com.alibaba.fastjson.JSONException;
+import com.aliyun.openservices.shade.com.alibaba.fastjson.JSONObject;
+
+/**
+ * JSON Lines 格式的回放文件，每行一条消息，空行忽略：
+ * <pre>
+ * {"topic":"TP_ORDER","tag":"created","key":"ORDER-1","shardingKey":"1001","properties":{"source":"backfill"},"body":"{...}"}
+ * </pre>
+ * topic 必填；body 为 UTF-8 文本，二进制消息体使用 bodyBase64；shardingKey 不为空时按顺序消息发送。
+ * 每行直接从映射区域解码到可复用的字符缓冲区后解析，不再经过中间的字节数组和字符串；解析出的字段与消息体仍会复制到 Message 中
+ */
+public class JsonLinesReplaySource extends MappedReplaySource {
+
+	private long position;
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private CharBuffer line = CharBuffer.allocate(4096);
+
+	public JsonLinesReplaySource(Path file, int regionSize) throws IOException {
+		super(file, regionSize);
+	}
+
+	@Override
+	public void seek(long position) {
+		this.position = position;
+	}
+
+	@Override
+	public OnsReplayRecord next() throws IOException {
+		while (position < size()) {
+			long start = position;
+			int length = this.readLine();
+			if (isBlank(line.array(), length)) {
+				continue;
+			}
+			try {
+				JSONObject json = JSON.parseObject(line.array(), length, JSONObject.class);
+				String shardingKey = json.getString("shardingKey");
+				return new OnsReplayRecord(toMessage(json), shardingKey == null || shardingKey.isEmpty() ? null : shardingKey, start, position);
+			} catch (JSONException | IllegalArgumentException e) {
+				throw new IOException("Illegal replay record at position " + start + ": " + e.getMessage(), e);
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * 将从 position 开始的一行解码到 line，position 移动到下一行的开头
+	 *
+	 * @return 行的字符数，不含换行符
+	 */
+	private int readLine() throws IOException {
+		long minimum = 1;
+		for (;;) {
+			MappedByteBuffer region = this.region(position, minimum);
+			int from = (int) (position - this.regionStart());
+			int to = (int) (this.regionEnd() - this.regionStart());
+			int end = from;
+			while (end < to && region.get(end) != '\n') {
+				end++;
+			}
+			boolean eof = this.regionEnd() >= size();
+			if (end < to || eof) {
+				int length = end - from;
+				if (length > 0 && region.get(end - 1) == '\r') {
+					length--;
+				}
+				ByteBuffer bytes = region.duplicate();
+				bytes.limit(from + length).position(from);
+				this.position = this.regionStart() + Math.min(end + 1, to);
+				return this.decode(bytes, length);
+			}
+			// 当前区域内没有换行：从行首重新映射，区域不足时加倍
+			minimum = Math.max(minimum, (long) (to - from) * 2);
+		}
+	}
+
+	/*
+	 * UTF-8 解码后的字符数不超过字节数，按字节数准备缓冲区即可一次解码完整行；非法字节替换为 U+FFFD，与 new String 一致
+	 */
+	private int decode(ByteBuffer bytes, int length) {
+		if (line.capacity() < length) {
+			line = CharBuffer.allocate(Math.max(length, line.capacity() * 2));
+		}
+		line.clear();
+		decoder.reset();
+		decoder.decode(bytes, line, true);
+		decoder.flush(line);
+		return line.position();
+	}
+
+	private static boolean isBlank(char[] chars, int length) {
+		for (int i = 0; i < length; i++) {
+			if (!Character.isWhitespace(chars[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static Message toMessage(JSONObject json) {
+		String topic = json.getString("topic");
+		if (topic == null || topic.isEmpty()) {
+			throw new IllegalArgumentException("topic must not be empty");
+		}
+		Message message = new Message();
+		message.setTopic(topic);
+		message.setTag(json.getString("tag"));
+		message.setKey(json.getString("key"));
+		JSONObject properties = json.getJSONObject("properties");
+		if (properties != null) {
+			for (Map.Entry<String, Object> entry : properties.entrySet()) {
+				if (entry.getValue() != null) {
+					message.putUserProperties(entry.getKey(), String.valueOf(entry.getValue()));
+				}
+			}
+		}
+		String bodyBase64 = json.getString("bodyBase64");
+		if (bodyBase64 != null) {
+			message.setBody(Base64.getDecoder().decode(bodyBase64));
+		} else {
+			String body = json.getString("body");
+			message.setBody(body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8));
+		}
+		return message;
+	}
+
+}
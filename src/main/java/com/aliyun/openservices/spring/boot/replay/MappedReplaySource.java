@@ -0,0 +1,72 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的回放数据源：按区域映射文件，读取位置超出当前区域时从该位置重新映射，单条记录超过区域大小时按需扩大映射；
+ * 文件内容由页缓存直接映射，不经过 read() 从内核到用户态缓冲区的复制；解析时各格式仍会把记录内容复制或解码到 Message 中
+ */
+abstract class MappedReplaySource implements OnsReplaySource {
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int regionSize;
+
+	private MappedByteBuffer region;
+
+	private long regionStart;
+
+	private long regionEnd;
+
+	MappedReplaySource(Path file, int regionSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.regionSize = regionSize;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	/*
+	 * 保证 [position, position + minimum) 在当前映射区域内，超出文件末尾的部分忽略
+	 *
+	 * @return 当前映射区域，下标 0 对应 {@link #regionStart()}
+	 */
+	protected final MappedByteBuffer region(long position, long minimum) throws IOException {
+		long end = Math.min(position + minimum, size);
+		if (region == null || position < regionStart || end > regionEnd) {
+			long length = Math.min(Math.max(regionSize, minimum), size - position);
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Replay record at " + position + " is too large: " + minimum + " bytes");
+			}
+			// MappedByteBuffer 无法主动解除映射，旧区域随 GC 回收
+			this.region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			this.regionStart = position;
+			this.regionEnd = position + length;
+		}
+		return region;
+	}
+
+	protected final long regionStart() {
+		return regionStart;
+	}
+
+	protected final long regionEnd() {
+		return regionEnd;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.region = null;
+		channel.close();
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 回放文件中的一条记录：待发送的消息、顺序消息选择因子，以及记录在文件中的起止位置（用于断点续传）
+ */
+public class OnsReplayRecord {
+
+	private final Message message;
+
+	/*
+	 * 顺序消息选择因子，普通消息为 null
+	 */
+	private final String shardingKey;
+
+	private final long position;
+
+	private final long nextPosition;
+
+	public OnsReplayRecord(Message message, String shardingKey, long position, long nextPosition) {
+		this.message = message;
+		this.shardingKey = shardingKey;
+		this.position = position;
+		this.nextPosition = nextPosition;
+	}
+
+	public Message getMessage() {
+		return message;
+	}
+
+	public String getShardingKey() {
+		return shardingKey;
+	}
+
+	/*
+	 * 记录在文件中的起始位置
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/*
+	 * 下一条记录的起始位置
+	 */
+	public long getNextPosition() {
+		return nextPosition;
+	}
+
+}
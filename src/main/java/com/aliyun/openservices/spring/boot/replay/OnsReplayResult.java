@@ -0,0 +1,81 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+/**
+ * 一次回放的结果
+ */
+public class OnsReplayResult {
+
+	private final long sent;
+
+	private final long failed;
+
+	private final long retried;
+
+	private final long checkpoint;
+
+	private final long size;
+
+	private final long elapsedMillis;
+
+	public OnsReplayResult(long sent, long failed, long retried, long checkpoint, long size, long elapsedMillis) {
+		this.sent = sent;
+		this.failed = failed;
+		this.retried = retried;
+		this.checkpoint = checkpoint;
+		this.size = size;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/*
+	 * 本次发送成功的消息数
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/*
+	 * 重试用尽仍发送失败的消息数
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/*
+	 * 重试次数
+	 */
+	public long getRetried() {
+		return retried;
+	}
+
+	/*
+	 * 断点位置：该位置之前的消息均已发送成功，再次回放时从这里继续
+	 */
+	public long getCheckpoint() {
+		return checkpoint;
+	}
+
+	/*
+	 * 回放文件大小（字节）
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/*
+	 * 是否已回放完整个文件
+	 */
+	public boolean isComplete() {
+		return failed == 0 && checkpoint >= size;
+	}
+
+	@Override
+	public String toString() {
+		return "OnsReplayResult [sent=" + sent + ", failed=" + failed + ", retried=" + retried + ", checkpoint=" + checkpoint
+				+ ", size=" + size + ", elapsedMillis=" + elapsedMillis + "]";
+	}
+
+}
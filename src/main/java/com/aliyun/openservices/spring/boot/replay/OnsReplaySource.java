@@ -0,0 +1,42 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 回放数据源：顺序读取回放文件中的记录，支持从断点位置继续读取
+ */
+public interface OnsReplaySource extends Closeable {
+
+	/*
+	 * 跳转到指定位置，位置必须是某条记录的起始位置（{@link OnsReplayRecord#getPosition()}）或文件头之后的第一条记录
+	 */
+	void seek(long position) throws IOException;
+
+	/*
+	 * 读取下一条记录
+	 *
+	 * @return 读到文件末尾时返回 null
+	 */
+	OnsReplayRecord next() throws IOException;
+
+	/*
+	 * 文件大小（字节）
+	 */
+	long size() throws IOException;
+
+	/*
+	 * 按文件格式打开数据源：以 {@link BinaryReplaySource#MAGIC} 开头的为二进制格式，其余按 JSON Lines 读取
+	 *
+	 * @param file             回放文件
+	 * @param mappedRegionSize 每次内存映射的区域大小（字节）
+	 */
+	static OnsReplaySource open(Path file, int mappedRegionSize) throws IOException {
+		if (BinaryReplaySource.isBinary(file)) {
+			return new BinaryReplaySource(file, mappedRegionSize);
+		}
+		return new JsonLinesReplaySource(file, mappedRegionSize);
+	}
+
+}
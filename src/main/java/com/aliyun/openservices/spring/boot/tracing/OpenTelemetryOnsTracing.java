@@ -0,0 +1,178 @@
+package com.aliyun.openservices.spring.boot.tracing;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.util.Assert;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.OnsTracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+/**
+ * 基于 OpenTelemetry 的链路追踪：W3C trace context（traceparent/tracestate）通过消息用户属性传播
+ * 头部采样：没有上游上下文时先按 sampleRatio 决定是否开启新链路，未命中时不创建任何 Span；
+ * 有上游上下文时沿用上游的采样标记，最终是否记录仍由 SDK 配置的 Sampler 决定
+ */
+public class OpenTelemetryOnsTracing implements OnsTracing {
+
+	public static final String INSTRUMENTATION_NAME = "aliyun-ons-spring-boot-starter";
+
+	private static final String TRACEPARENT = "traceparent";
+
+	private static final TextMapSetter<Message> SETTER = (message, key, value) -> message.putUserProperties(key, value);
+
+	private static final TextMapGetter<Message> GETTER = new TextMapGetter<Message>() {
+
+		@Override
+		public Iterable<String> keys(Message message) {
+			Properties properties = message.getUserProperties();
+			return properties == null ? Collections.emptySet() : properties.stringPropertyNames();
+		}
+
+		@Override
+		public String get(Message message, String key) {
+			return message == null ? null : message.getUserProperties(key);
+		}
+
+	};
+
+	private final Tracer tracer;
+
+	private final TextMapPropagator propagator = W3CTraceContextPropagator.getInstance();
+
+	private final double sampleRatio;
+
+	public OpenTelemetryOnsTracing(OpenTelemetry openTelemetry, double sampleRatio) {
+		Assert.notNull(openTelemetry, "openTelemetry must not be null");
+		Assert.isTrue(sampleRatio >= 0 && sampleRatio <= 1, "sampleRatio must be between 0 and 1");
+		this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+		this.sampleRatio = sampleRatio;
+	}
+
+	/*
+	 * 在当前上下文下创建发送 Span 并注入消息；发送 Span 只标记消息交给客户端的时刻，不包含 Broker 的耗时
+	 * 已携带 traceparent 的消息（如重发、回放）保留原有上下文
+	 */
+	@Override
+	public void inject(Message message) {
+		if (message.getUserProperties(TRACEPARENT) != null) {
+			return;
+		}
+		Context parent = Context.current();
+		if (!Span.fromContext(parent).getSpanContext().isValid() && !this.sample()) {
+			return;
+		}
+		Span span = tracer.spanBuilder(message.getTopic() + " publish")
+				.setParent(parent)
+				.setSpanKind(SpanKind.PRODUCER)
+				.setAttribute("messaging.system", "rocketmq")
+				.setAttribute("messaging.destination", message.getTopic())
+				.setAttribute("messaging.operation", "publish")
+				.startSpan();
+		try {
+			propagator.inject(span.storeInContext(parent), message, SETTER);
+		} finally {
+			span.end();
+		}
+	}
+
+	@Override
+	public Scope startConsume(Message message) {
+		Context parent = propagator.extract(Context.root(), message, GETTER);
+		if (!Span.fromContext(parent).getSpanContext().isValid() && !this.sample()) {
+			return Scope.NOOP;
+		}
+		Span span = tracer.spanBuilder(message.getTopic() + " process")
+				.setParent(parent)
+				.setSpanKind(SpanKind.CONSUMER)
+				.setAttribute("messaging.system", "rocketmq")
+				.setAttribute("messaging.destination", message.getTopic())
+				.setAttribute("messaging.operation", "process")
+				.setAttribute("messaging.message_id", String.valueOf(message.getMsgID()))
+				.setAttribute("messaging.rocketmq.message_keys", String.valueOf(message.getKey()))
+				.setAttribute("messaging.rocketmq.reconsume_times", message.getReconsumeTimes())
+				.startSpan();
+		return new SpanScope(span);
+	}
+
+	/*
+	 * 批量消费的消息来自不同链路，消费 Span 作为新的根节点，通过 link 关联每条消息的发送 Span；
+	 * 任一消息已被上游采样时该批次一定采样
+	 */
+	@Override
+	public Scope startBatchConsume(List<Message> messages) {
+		if (messages.isEmpty()) {
+			return Scope.NOOP;
+		}
+		String topic = messages.get(0).getTopic();
+		SpanBuilder builder = tracer.spanBuilder(topic + " process")
+				.setNoParent()
+				.setSpanKind(SpanKind.CONSUMER)
+				.setAttribute("messaging.system", "rocketmq")
+				.setAttribute("messaging.destination", topic)
+				.setAttribute("messaging.operation", "process")
+				.setAttribute("messaging.batch.message_count", messages.size());
+		boolean sampled = false;
+		for (Message message : messages) {
+			SpanContext link = Span.fromContext(propagator.extract(Context.root(), message, GETTER)).getSpanContext();
+			if (link.isValid()) {
+				builder.addLink(link);
+				sampled |= link.isSampled();
+			}
+		}
+		if (!sampled && !this.sample()) {
+			return Scope.NOOP;
+		}
+		return new SpanScope(builder.startSpan());
+	}
+
+	/*
+	 * 发送前处理在其他线程执行时 Context.current() 为空，需在调用线程捕获，否则每次发送都会开启新的根链路
+	 */
+	@Override
+	public <T> Callable<T> wrap(Callable<T> task) {
+		return Context.current().wrap(task);
+	}
+
+	private boolean sample() {
+		return sampleRatio >= 1 || (sampleRatio > 0 && ThreadLocalRandom.current().nextDouble() < sampleRatio);
+	}
+
+	private static final class SpanScope implements Scope {
+
+		private final Span span;
+		private final io.opentelemetry.context.Scope scope;
+
+		SpanScope(Span span) {
+			this.span = span;
+			this.scope = span.makeCurrent();
+		}
+
+		@Override
+		public void close(boolean success) {
+			if (!success) {
+				span.setStatus(StatusCode.ERROR);
+			}
+			scope.close();
+			span.end();
+		}
+
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 窗口聚合：多个批次进入同一滚动窗口，按数量或时间关闭后写入一次，写入成功后才提交
+ */
+class AbstractAggregatingMessageListenerTest {
+
+	@Test
+	void flushesCountWindowAcrossBatches() throws Exception {
+		CountingListener listener = new CountingListener(4, 5000);
+
+		CompletableFuture<Action> first = CompletableFuture.supplyAsync(() -> listener.consume(batch("a", "b"), new ConsumeContext()));
+		Thread.sleep(100);
+		assertFalse(first.isDone(), "batch must not be committed before its window is flushed");
+		Action second = listener.consume(batch("a", "a"), new ConsumeContext());
+
+		assertEquals(Action.CommitMessage, second);
+		assertEquals(Action.CommitMessage, first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, listener.flushed.size());
+		Map<String, Integer> expected = new HashMap<>();
+		expected.put("a", 3);
+		expected.put("b", 1);
+		assertEquals(expected, listener.flushed.get(0));
+		assertEquals(4, listener.flushedMessages);
+	}
+
+	@Test
+	void flushesTimeWindow() {
+		CountingListener listener = new CountingListener(1000, 100);
+
+		long begin = System.nanoTime();
+		assertEquals(Action.CommitMessage, listener.consume(batch("a", "b", "a"), new ConsumeContext()));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+		assertTrue(elapsedMillis >= 90 && elapsedMillis < 5000, "waited " + elapsedMillis + " ms");
+		assertEquals(Collections.singletonList(counts("a", 2, "b", 1)), listener.flushed);
+	}
+
+	@Test
+	void reconsumesWholeWindowWhenFlushFails() throws Exception {
+		CountingListener listener = new CountingListener(4, 5000);
+		listener.failing = true;
+
+		CompletableFuture<Action> first = CompletableFuture.supplyAsync(() -> listener.consume(batch("a", "b"), new ConsumeContext()));
+		Thread.sleep(50);
+		assertEquals(Action.ReconsumeLater, listener.consume(batch("c", "d"), new ConsumeContext()));
+		assertEquals(Action.ReconsumeLater, first.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void skipsMessagesRejectedByApply() {
+		CountingListener listener = new CountingListener(2, 5000);
+		listener.processed.add("KEY-b");
+
+		assertEquals(Action.CommitMessage, listener.consume(batch("a", "b", "a"), new ConsumeContext()));
+		assertEquals(Collections.singletonList(counts("a", 2, null, 0)), listener.flushed);
+	}
+
+	@Test
+	void reconsumesBatchWithoutTouchingWindowWhenKeyFails() {
+		CountingListener listener = new CountingListener(2, 5000);
+
+		assertEquals(Action.ReconsumeLater, listener.consume(batch("a", "!"), new ConsumeContext()));
+		assertEquals(Action.CommitMessage, listener.consume(batch("b", "b"), new ConsumeContext()));
+		assertEquals(Collections.singletonList(counts("b", 2, null, 0)), listener.flushed);
+	}
+
+	private static List<Message> batch(String... keys) {
+		Message[] messages = new Message[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			messages[i] = new Message("TOPIC", "TAG", "KEY-" + keys[i], keys[i].getBytes(StandardCharsets.UTF_8));
+		}
+		return Arrays.asList(messages);
+	}
+
+	private static Map<String, Integer> counts(String key, int count, String otherKey, int otherCount) {
+		Map<String, Integer> counts = new HashMap<>();
+		counts.put(key, count);
+		if (otherKey != null) {
+			counts.put(otherKey, otherCount);
+		}
+		return counts;
+	}
+
+	private static class CountingListener extends AbstractAggregatingMessageListener<String, Integer> {
+
+		private final int windowSize;
+
+		private final long windowMillis;
+
+		private final List<Map<String, Integer>> flushed = new CopyOnWriteArrayList<>();
+
+		private final List<String> processed = new CopyOnWriteArrayList<>();
+
+		private volatile int flushedMessages;
+
+		private volatile boolean failing;
+
+		CountingListener(int windowSize, long windowMillis) {
+			this.windowSize = windowSize;
+			this.windowMillis = windowMillis;
+		}
+
+		@Override
+		protected int windowSize() {
+			return windowSize;
+		}
+
+		@Override
+		protected long windowMillis() {
+			return windowMillis;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return processed.contains(message.getKey()) ? 1 : 0;
+		}
+
+		@Override
+		protected String key(Message message) {
+			String key = new String(message.getBody(), StandardCharsets.UTF_8);
+			if ("!".equals(key)) {
+				throw new IllegalArgumentException("malformed message");
+			}
+			return key;
+		}
+
+		@Override
+		protected Integer value(Message message) {
+			return 1;
+		}
+
+		@Override
+		protected Integer reduce(Integer left, Integer right) {
+			return left + right;
+		}
+
+		@Override
+		protected void flush(Map<String, Integer> window) throws Exception {
+			if (failing) {
+				throw new IllegalStateException("database unavailable");
+			}
+			flushed.add(new HashMap<>(window));
+		}
+
+		@Override
+		protected void flush(Map<String, Integer> window, List<Message> messages) throws Exception {
+			this.flush(window);
+			flushedMessages = messages.size();
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 批内压缩：同一 key 保留最后一条并放在最后出现的位置，顺序敏感的 key 与没有 key 的消息保持原样
+ */
+class AbstractBatchMessageListenerTest {
+
+	private static final String ENTITY = "entity";
+
+	@Test
+	void keepsBatchWithoutCompactionKey() {
+		RecordingListener listener = new RecordingListener();
+		listener.compaction = false;
+		List<Message> messages = Arrays.asList(message("a", "1"), message("a", "2"));
+
+		assertSame(messages, listener.compact(messages));
+	}
+
+	@Test
+	void keepsLatestAtLastPosition() {
+		RecordingListener listener = new RecordingListener();
+		List<Message> messages = Arrays.asList(message("a", "a1"), message("b", "b1"), message(null, "n1"),
+				message("a", "a2"), message("c", "c1"), message("b", "b2"));
+
+		assertEquals(Arrays.asList("n1", "a2", "c1", "b2"), bodies(listener.compact(messages)));
+	}
+
+	@Test
+	void keepsOrderSensitiveKeys() {
+		RecordingListener listener = new RecordingListener();
+		List<Message> messages = Arrays.asList(message("seq-1", "s1"), message("a", "a1"), message("seq-1", "s2"),
+				message("a", "a2"), message("seq-1", "s3"));
+
+		assertEquals(Arrays.asList("s1", "s2", "a2", "s3"), bodies(listener.compact(messages)));
+	}
+
+	@Test
+	void mergesInArrivalOrder() {
+		RecordingListener listener = new RecordingListener();
+		listener.concat = true;
+		List<Message> messages = Arrays.asList(message("a", "1"), message("b", "x"), message("a", "2"), message("a", "3"));
+
+		assertEquals(Arrays.asList("x", "1+2+3"), bodies(listener.compact(messages)));
+	}
+
+	@Test
+	void dispatchesCompactedBatch() {
+		RecordingListener listener = new RecordingListener();
+		List<Message> messages = Arrays.asList(message("a", "a1"), message("seq-1", "s1"), message("a", "a2"),
+				message("seq-1", "s2"));
+
+		assertEquals(Action.CommitMessage, listener.consume(messages, new ConsumeContext()));
+		assertEquals(Arrays.asList("s1", "a2", "s2"), bodies(listener.consumed));
+	}
+
+	private static Message message(String entity, String body) {
+		Message message = new Message("TOPIC", "TAG", body.getBytes(StandardCharsets.UTF_8));
+		if (entity != null) {
+			message.putUserProperties(ENTITY, entity);
+		}
+		return message;
+	}
+
+	private static List<String> bodies(List<Message> messages) {
+		List<String> bodies = new ArrayList<>(messages.size());
+		for (Message message : messages) {
+			bodies.add(new String(message.getBody(), StandardCharsets.UTF_8));
+		}
+		return bodies;
+	}
+
+	private static final class RecordingListener extends AbstractBatchMessageListener {
+
+		private final List<Message> consumed = new ArrayList<>();
+
+		private boolean compaction = true;
+
+		private boolean concat = false;
+
+		@Override
+		protected String compactionKey(Message message) {
+			return compaction ? message.getUserProperties(ENTITY) : null;
+		}
+
+		@Override
+		protected boolean isOrderSensitive(String key) {
+			return key.startsWith("seq-");
+		}
+
+		@Override
+		protected Message merge(Message previous, Message latest) {
+			if (!concat) {
+				return latest;
+			}
+			String body = new String(previous.getBody(), StandardCharsets.UTF_8) + "+" + new String(latest.getBody(), StandardCharsets.UTF_8);
+			latest.setBody(body.getBytes(StandardCharsets.UTF_8));
+			return latest;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message, ConsumeContext context) {
+			consumed.add(message);
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 消费背压：每个监听器独立的 AIMD 许可，许可不足时有界等待，超时后稍后重新消费
+ */
+class AliyunOnsBackPressureControllerTest {
+
+	private static final long MAX_WAIT_MILLIS = 100;
+
+	private final AliyunOnsBackPressureProperties properties = new AliyunOnsBackPressureProperties();
+
+	private AliyunOnsBackPressureController controller;
+
+	AliyunOnsBackPressureControllerTest() {
+		properties.setMaxConcurrency(8);
+		properties.setMinConcurrency(1);
+		properties.setMinRequests(10);
+		properties.setMaxErrorRate(0.5);
+		properties.setRecoverStep(2);
+		properties.setMaxWaitMillis(MAX_WAIT_MILLIS);
+		// 由测试直接调用 evaluate()
+		properties.setEvaluateIntervalMillis(TimeUnit.HOURS.toMillis(1));
+	}
+
+	@AfterEach
+	void shutdown() {
+		controller.shutdown();
+	}
+
+	@Test
+	void halvesOnErrorsAndRecoversAdditively() {
+		controller = new AliyunOnsBackPressureController(properties, Collections.emptyList(), TimeUnit.MINUTES.toMillis(15));
+		AliyunOnsBackPressureController.Limiter limiter = controller.limiter("orders");
+
+		this.record(limiter, 4, 6);
+		controller.evaluate();
+		assertEquals(4, limiter.getLimit());
+		this.record(limiter, 0, 10);
+		controller.evaluate();
+		assertEquals(2, limiter.getLimit());
+		this.record(limiter, 0, 10);
+		controller.evaluate();
+		this.record(limiter, 0, 10);
+		controller.evaluate();
+		assertEquals(1, limiter.getLimit(), "limit must not drop below minConcurrency");
+
+		// 消费次数不足 minRequests 时不按失败率判断
+		this.record(limiter, 0, 5);
+		controller.evaluate();
+		assertEquals(3, limiter.getLimit());
+		controller.evaluate();
+		controller.evaluate();
+		controller.evaluate();
+		assertEquals(8, limiter.getLimit(), "limit must not exceed maxConcurrency");
+	}
+
+	@Test
+	void boundsWaitAndHandsOverReleasedPermit() throws Exception {
+		properties.setMaxConcurrency(2);
+		controller = new AliyunOnsBackPressureController(properties, Collections.emptyList(), TimeUnit.MINUTES.toMillis(15));
+		AliyunOnsBackPressureController.Limiter limiter = controller.limiter("orders");
+
+		assertTrue(limiter.acquire());
+		assertTrue(limiter.acquire());
+		assertEquals(2, limiter.getInFlight());
+
+		long begin = System.nanoTime();
+		assertFalse(limiter.acquire());
+		long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		assertTrue(waited >= MAX_WAIT_MILLIS - 10 && waited < MAX_WAIT_MILLIS + 1000, "waited " + waited + " ms");
+		assertEquals(1, limiter.getTimeouts());
+
+		Thread waiter = new Thread(() -> assertTrue(limiter.acquire()));
+		waiter.start();
+		Thread.sleep(20);
+		limiter.release(true);
+		waiter.join(1000);
+		assertFalse(waiter.isAlive());
+		assertEquals(2, limiter.getInFlight());
+	}
+
+	@Test
+	void shrinksBelowInFlightUntilReleased() {
+		properties.setMaxConcurrency(4);
+		controller = new AliyunOnsBackPressureController(properties, Collections.singletonList(() -> true), TimeUnit.MINUTES.toMillis(15));
+		AliyunOnsBackPressureController.Limiter limiter = controller.limiter("orders");
+		for (int i = 0; i < 4; i++) {
+			assertTrue(limiter.acquire());
+		}
+
+		controller.evaluate();
+		assertEquals(2, limiter.getLimit());
+		limiter.release(true);
+		limiter.release(true);
+		assertFalse(limiter.acquire(), "released permits must cover the reduction first");
+		limiter.release(true);
+		assertTrue(limiter.acquire());
+	}
+
+	@Test
+	void keepsListenersIndependent() {
+		OnsDownstreamProbe ordersDatabase = new OnsDownstreamProbe() {
+
+			@Override
+			public boolean isSaturated() {
+				return true;
+			}
+
+			@Override
+			public boolean appliesTo(String listener) {
+				return "orders".equals(listener);
+			}
+
+		};
+		controller = new AliyunOnsBackPressureController(properties, Collections.singletonList(ordersDatabase), TimeUnit.MINUTES.toMillis(15));
+		AliyunOnsBackPressureController.Limiter orders = controller.limiter("orders");
+		AliyunOnsBackPressureController.Limiter payments = controller.limiter("payments");
+
+		this.record(payments, 10, 0);
+		controller.evaluate();
+
+		assertEquals(4, orders.getLimit());
+		assertEquals(8, payments.getLimit());
+	}
+
+	@Test
+	void clampsWaitBelowConsumeTimeout() {
+		properties.setMaxWaitMillis(TimeUnit.MINUTES.toMillis(30));
+		controller = new AliyunOnsBackPressureController(properties, Collections.emptyList(), TimeUnit.MINUTES.toMillis(15));
+
+		assertEquals(TimeUnit.MINUTES.toMillis(15) / 2, controller.getMaxWaitMillis());
+	}
+
+	@Test
+	void reconsumesWhenListenerPermitTimesOut() {
+		properties.setMaxConcurrency(1);
+		controller = new AliyunOnsBackPressureController(properties, Collections.emptyList(), TimeUnit.MINUTES.toMillis(15));
+		AbstractMessageListener listener = new AbstractMessageListener() {
+
+			@Override
+			public int apply(Message message) {
+				return 0;
+			}
+
+			@Override
+			public void consume(int count, Message message) {
+			}
+
+		};
+		listener.setBeanName("orders");
+		listener.setBackPressureController(controller);
+		Message message = new Message("TOPIC", "TAG", "KEY", "body".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(Action.CommitMessage, listener.consume(message, new ConsumeContext()));
+		assertTrue(controller.limiter("orders").acquire());
+		assertEquals(Action.ReconsumeLater, listener.consume(message, new ConsumeContext()));
+		assertEquals(Collections.singleton("orders"), controller.getLimits().keySet());
+	}
+
+	private void record(AliyunOnsBackPressureController.Limiter limiter, int successes, int failures) {
+		for (int i = 0; i < successes + failures; i++) {
+			assertTrue(limiter.acquire());
+			limiter.release(i < successes);
+		}
+	}
+
+}
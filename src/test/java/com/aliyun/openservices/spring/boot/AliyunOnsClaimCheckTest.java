@@ -0,0 +1,169 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * claim-check：消费时消息中保留引用，处理方读取消息体时才打开转存的消息体，消费成功后按配置删除
+ */
+class AliyunOnsClaimCheckTest {
+
+	private static final int THRESHOLD = 64;
+
+	@TempDir
+	Path directory;
+
+	private final AtomicInteger opens = new AtomicInteger();
+
+	private AliyunOnsClaimCheck claimCheck;
+
+	@AfterEach
+	void shutdown() {
+		if (claimCheck != null) {
+			claimCheck.shutdown();
+		}
+	}
+
+	@Test
+	void keepsSmallBodyInMessage() throws IOException {
+		claimCheck = this.claimCheck(false);
+		Message message = message(new byte[THRESHOLD]);
+		claimCheck.checkIn(message);
+
+		assertFalse(AliyunOnsClaimCheck.isCheckedIn(message));
+		assertEquals(THRESHOLD, claimCheck.body(message).getSize());
+		assertArrayEquals(new byte[THRESHOLD], claimCheck.readBody(message));
+	}
+
+	@Test
+	void opensCheckedInBodyOnlyWhenRead() throws IOException {
+		claimCheck = this.claimCheck(true);
+		byte[] body = random(THRESHOLD * 10);
+		Message message = message(body);
+		claimCheck.checkIn(message);
+		String reference = message.getUserProperties(AliyunOnsClaimCheck.PROPERTY_REFERENCE);
+
+		RecordingListener skipping = new RecordingListener(false);
+		skipping.setClaimCheck(claimCheck);
+		assertEquals(Action.CommitMessage, skipping.consume(message, new ConsumeContext()));
+		assertEquals(0, opens.get(), "handler that never reads the body must not open the blob");
+		assertEquals(body.length, skipping.size);
+		assertEquals(reference, skipping.reference);
+		// 消费成功后删除
+		assertThrows(IOException.class, () -> claimCheck.getBlobStore().open(reference));
+	}
+
+	@Test
+	void streamsCheckedInBody() throws IOException {
+		claimCheck = this.claimCheck(false);
+		byte[] body = random(THRESHOLD * 10);
+		Message message = message(body);
+		claimCheck.checkIn(message);
+
+		RecordingListener reading = new RecordingListener(true);
+		reading.setClaimCheck(claimCheck);
+		assertEquals(Action.CommitMessage, reading.consume(message, new ConsumeContext()));
+
+		assertArrayEquals(body, reading.content);
+		assertEquals(1, opens.get());
+		// 消息中仍是引用，未开启 deleteAfterCommit 时保留转存的消息体
+		assertTrue(AliyunOnsClaimCheck.isCheckedIn(message));
+		assertNotNull(claimCheck.getBlobStore().open(message.getUserProperties(AliyunOnsClaimCheck.PROPERTY_REFERENCE)));
+	}
+
+	@Test
+	void reconsumesCheckedInMessageWithoutClaimCheck() throws IOException {
+		claimCheck = this.claimCheck(false);
+		Message message = message(random(THRESHOLD * 2));
+		claimCheck.checkIn(message);
+
+		RecordingListener listener = new RecordingListener(true);
+		assertEquals(Action.ReconsumeLater, listener.consume(message, new ConsumeContext()));
+		assertEquals(0, listener.consumed);
+		assertThrows(IllegalStateException.class, () -> new OnsMessageBody(null, message).openStream());
+	}
+
+	private AliyunOnsClaimCheck claimCheck(boolean deleteAfterCommit) {
+		AliyunOnsClaimCheckProperties properties = new AliyunOnsClaimCheckProperties();
+		properties.setThresholdBytes(THRESHOLD);
+		properties.setRetentionMillis(0);
+		properties.setDeleteAfterCommit(deleteAfterCommit);
+		LocalFileOnsBlobStore blobStore = new LocalFileOnsBlobStore(directory.toString()) {
+
+			@Override
+			public InputStream open(String reference) throws IOException {
+				opens.incrementAndGet();
+				return super.open(reference);
+			}
+
+		};
+		return new AliyunOnsClaimCheck(blobStore, properties);
+	}
+
+	private static Message message(byte[] body) {
+		return new Message("TOPIC", "TAG", "KEY", body);
+	}
+
+	private static byte[] random(int size) {
+		byte[] body = new byte[size];
+		new Random(size).nextBytes(body);
+		return body;
+	}
+
+	private static class RecordingListener extends AbstractMessageListener {
+
+		private final boolean reading;
+
+		private int consumed;
+
+		private long size;
+
+		private String reference;
+
+		private byte[] content;
+
+		RecordingListener(boolean reading) {
+			this.reading = reading;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message) throws Exception {
+			consumed++;
+			OnsMessageBody body = this.body(message);
+			size = body.getSize();
+			reference = body.getReference();
+			if (reading) {
+				try (InputStream input = this.openBody(message)) {
+					content = StreamUtils.copyToByteArray(input);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.spring.boot.annotation.ManagedStartup;
+
+/**
+ * 客户端统一启动：只启动标注了 {@link ManagedStartup} 的客户端，使用方自行管理的客户端不受影响
+ */
+class AliyunOnsClientStarterTest {
+
+	@Test
+	void startsOnlyMarkedClients() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ClientConfiguration.class)) {
+			assertTrue(context.getBean("ordersConsumer", StubClient.class).isStarted());
+			assertTrue(context.getBean("paymentsConsumer", StubClient.class).isStarted());
+			assertFalse(context.getBean("userClient", StubClient.class).isStarted(), "unmarked client must not be started");
+			assertEquals(2, context.getBean(AliyunOnsClientStarter.class).getStartupTimings().size());
+		}
+	}
+
+	@Configuration
+	static class ClientConfiguration {
+
+		@Bean
+		AliyunOnsClientStarter aliyunOnsClientStarter() {
+			return new AliyunOnsClientStarter(new AliyunOnsMqProperties());
+		}
+
+		@Bean
+		@ManagedStartup
+		Admin ordersConsumer() {
+			return new StubClient();
+		}
+
+		@Bean
+		@ManagedStartup
+		StubClient paymentsConsumer() {
+			return new StubClient();
+		}
+
+		@Bean
+		Admin userClient() {
+			return new StubClient();
+		}
+
+	}
+
+	static class StubClient implements Admin {
+
+		private volatile boolean started;
+
+		@Override
+		public boolean isStarted() {
+			return started;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void start() {
+			started = true;
+		}
+
+		@Override
+		public void updateCredential(Properties credentialProperties) {
+		}
+
+		@Override
+		public void shutdown() {
+			started = false;
+		}
+
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.order.ConsumeOrderContext;
+import com.aliyun.openservices.ons.api.order.OrderAction;
+
+/**
+ * 消费看门狗：只上报时等待处理方结束并保留消费结果；开启 abandon 时处理方在隔离线程执行，超时后消费线程立即返回稍后重试
+ */
+class AliyunOnsConsumeWatchdogTest {
+
+	private static final long DEADLINE_MILLIS = 200;
+
+	private final List<OnsSlowConsumeEvent> events = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private AliyunOnsConsumeWatchdog watchdog;
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		watchdog.shutdown();
+	}
+
+	@Test
+	void reportsSlowConsumeWithoutAbandoning() throws Exception {
+		watchdog = this.watchdog(false, 1);
+		BlockingListener listener = new BlockingListener(false);
+		listener.setBeanName("slowListener");
+		listener.setConsumeWatchdog(watchdog);
+
+		Thread consumer = new Thread(() -> listener.result = listener.consume(message(), new ConsumeContext()));
+		consumer.start();
+		assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+		Thread.sleep(DEADLINE_MILLIS * 2);
+		watchdog.scan();
+		watchdog.scan();
+
+		assertEquals(1, events.size(), "slow consume is reported once");
+		assertFalse(events.get(0).isAbandoned());
+		assertTrue(events.get(0).getStackTrace().length > 0);
+		assertEquals(1, watchdog.getOverdueCount());
+
+		release.countDown();
+		consumer.join(5000);
+		assertEquals(Action.CommitMessage, listener.result);
+		assertEquals(Long.valueOf(1), watchdog.getSlowCounts().get("slowListener"));
+		assertEquals(0, watchdog.getOverdueCount());
+	}
+
+	@Test
+	void abandonsHandlerThatIgnoresInterrupt() throws Exception {
+		watchdog = this.watchdog(true, 4);
+		BlockingListener listener = new BlockingListener(true);
+		listener.setBeanName("stuckListener");
+		listener.setConsumeWatchdog(watchdog);
+
+		long begin = System.nanoTime();
+		Action action = listener.consume(message(), new ConsumeContext());
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+		assertEquals(Action.ReconsumeLater, action);
+		assertTrue(elapsedMillis < DEADLINE_MILLIS + 1000, "consume thread waited " + elapsedMillis + " ms");
+		assertTrue(listener.handlerThread.getName().startsWith("ons-consume-isolated-"));
+		assertEquals(1, events.size());
+		assertTrue(events.get(0).isAbandoned());
+		assertTrue(events.get(0).getStackTrace().length > 0);
+		assertEquals(Long.valueOf(1), watchdog.getAbandonedCounts().get("stuckListener"));
+		// 被放弃的处理方仍在执行，不影响消费线程
+		assertEquals(1, watchdog.getOverdueCount());
+	}
+
+	@Test
+	void abandonsOrderedConsumeWithSuspend() {
+		watchdog = this.watchdog(true, 4);
+		AbstractMessageOrderListener listener = new AbstractMessageOrderListener() {
+
+			@Override
+			public int apply(Message message) {
+				return 0;
+			}
+
+			@Override
+			public void consume(int count, Message message) throws Exception {
+				release.await();
+			}
+
+		};
+		listener.setBeanName("orderListener");
+		listener.setConsumeWatchdog(watchdog);
+
+		assertEquals(OrderAction.Suspend, listener.consume(message(), new ConsumeOrderContext()));
+		assertEquals(Long.valueOf(1), watchdog.getAbandonedCounts().get("orderListener"));
+	}
+
+	@Test
+	void keepsResultOfIsolatedHandlerWithinDeadline() {
+		watchdog = this.watchdog(true, 4);
+		BlockingListener listener = new BlockingListener(false);
+		listener.setConsumeWatchdog(watchdog);
+		release.countDown();
+
+		assertEquals(Action.CommitMessage, listener.consume(message(), new ConsumeContext()));
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	void reconsumesWhenIsolationThreadsExhausted() throws Exception {
+		watchdog = this.watchdog(true, 1);
+		BlockingListener blocked = new BlockingListener(true);
+		blocked.setConsumeWatchdog(watchdog);
+		assertEquals(Action.ReconsumeLater, blocked.consume(message(), new ConsumeContext()));
+
+		BlockingListener next = new BlockingListener(false);
+		next.setConsumeWatchdog(watchdog);
+		long begin = System.nanoTime();
+		assertEquals(Action.ReconsumeLater, next.consume(message(), new ConsumeContext()));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < DEADLINE_MILLIS);
+		assertEquals(1, next.started.getCount(), "handler must not run");
+	}
+
+	private AliyunOnsConsumeWatchdog watchdog(boolean abandon, int isolationThreads) {
+		AliyunOnsWatchdogProperties properties = new AliyunOnsWatchdogProperties();
+		properties.setSoftDeadlineMillis(DEADLINE_MILLIS);
+		// 由测试直接调用 scan()
+		properties.setCheckIntervalMillis(TimeUnit.HOURS.toMillis(1));
+		properties.setAbandon(abandon);
+		properties.setIsolationThreads(isolationThreads);
+		AliyunOnsConsumeWatchdog watchdog = new AliyunOnsConsumeWatchdog(properties);
+		watchdog.setApplicationEventPublisher(event -> events.add((OnsSlowConsumeEvent) event));
+		return watchdog;
+	}
+
+	private static Message message() {
+		return new Message("TOPIC", "TAG", "KEY", "body".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private class BlockingListener extends AbstractMessageListener {
+
+		private final boolean ignoreInterrupt;
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private volatile Thread handlerThread;
+
+		private volatile Action result;
+
+		BlockingListener(boolean ignoreInterrupt) {
+			this.ignoreInterrupt = ignoreInterrupt;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message) throws Exception {
+			handlerThread = Thread.currentThread();
+			started.countDown();
+			while (true) {
+				try {
+					release.await();
+					return;
+				} catch (InterruptedException e) {
+					if (!ignoreInterrupt) {
+						throw e;
+					}
+				}
+			}
+		}
+
+	}
+
+}
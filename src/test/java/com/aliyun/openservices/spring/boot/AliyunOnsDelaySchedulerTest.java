@@ -0,0 +1,144 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendResult;
+
+/**
+ * 本地延时投递：发送失败按退避重试、重试耗尽标记失败、发送线程池已满时放回时间轮而不在时间轮线程上发送
+ */
+class AliyunOnsDelaySchedulerTest {
+
+	private AliyunOnsDelayScheduler scheduler;
+
+	@AfterEach
+	void stop() {
+		if (scheduler != null) {
+			scheduler.stop();
+		}
+	}
+
+	@Test
+	void retriesFailedSend() throws Exception {
+		AtomicInteger sends = new AtomicInteger();
+		CountDownLatch sent = new CountDownLatch(1);
+		Producer producer = producer(message -> {
+			if (sends.incrementAndGet() <= 2) {
+				throw new IllegalStateException("broker busy");
+			}
+			sent.countDown();
+		});
+		this.start(Runnable::run, 3);
+
+		OnsDelayedMessage delayed = scheduler.schedule(producer, message(), System.currentTimeMillis() + 20);
+
+		assertTrue(sent.await(2, TimeUnit.SECONDS));
+		assertEquals(3, sends.get());
+		assertEquals(2, scheduler.getRetriedCount());
+		assertEquals(0, scheduler.getFailedCount());
+		assertTrue(delayed.isDispatched());
+		assertFalse(delayed.cancel());
+	}
+
+	@Test
+	void marksFailedAfterRetries() throws Exception {
+		AtomicInteger sends = new AtomicInteger();
+		Producer producer = producer(message -> {
+			sends.incrementAndGet();
+			throw new IllegalStateException("broker down");
+		});
+		this.start(Runnable::run, 2);
+
+		OnsDelayedMessage delayed = scheduler.schedule(producer, message(), System.currentTimeMillis() + 10);
+
+		long deadline = System.currentTimeMillis() + 2000;
+		while (!delayed.isFailed() && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(5);
+		}
+		assertTrue(delayed.isFailed());
+		assertEquals(3, sends.get());
+		assertEquals(3, delayed.getAttempts());
+		assertEquals(1, scheduler.getFailedCount());
+	}
+
+	@Test
+	void requeuesWhenExecutorRejects() throws Exception {
+		List<String> sendThreads = new ArrayList<>();
+		CountDownLatch sent = new CountDownLatch(1);
+		Producer producer = producer(message -> {
+			synchronized (sendThreads) {
+				sendThreads.add(Thread.currentThread().getName());
+			}
+			sent.countDown();
+		});
+		AtomicInteger rejections = new AtomicInteger();
+		Executor executor = command -> {
+			if (rejections.incrementAndGet() <= 3) {
+				throw new RejectedExecutionException("pool is full");
+			}
+			new Thread(command, "ons-pool-test").start();
+		};
+		this.start(executor, 0);
+
+		scheduler.schedule(producer, message(), System.currentTimeMillis() + 10);
+
+		assertTrue(sent.await(2, TimeUnit.SECONDS));
+		assertEquals(4, rejections.get());
+		synchronized (sendThreads) {
+			assertEquals(1, sendThreads.size());
+			assertEquals("ons-pool-test", sendThreads.get(0));
+		}
+	}
+
+	private void start(Executor executor, int maxRetries) {
+		AliyunOnsDelayProperties properties = new AliyunOnsDelayProperties();
+		properties.setTickMillis(5);
+		properties.setMaxRetries(maxRetries);
+		properties.setRetryBackoffMillis(10);
+		this.scheduler = new AliyunOnsDelayScheduler(properties, executor);
+		scheduler.start();
+	}
+
+	private static Message message() {
+		return new Message("TOPIC", "TAG", "KEY", "body".getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Producer producer(SendAction action) {
+		return (Producer) Proxy.newProxyInstance(Producer.class.getClassLoader(), new Class<?>[] { Producer.class },
+				(proxy, method, args) -> {
+					if ("send".equals(method.getName())) {
+						Message message = (Message) args[0];
+						action.send(message);
+						SendResult sendResult = new SendResult();
+						sendResult.setTopic(message.getTopic());
+						sendResult.setMessageId("MSG_ID");
+						return sendResult;
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+	}
+
+	private interface SendAction {
+
+		void send(Message message);
+
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.aliyun.openservices.ons.api.PropertyKeyConst;
+import com.aliyun.openservices.ons.api.bean.ConsumerBean;
+import com.aliyun.openservices.ons.api.bean.OrderConsumerBean;
+
+/**
+ * 运行期刷新：配置重新绑定到新实例，删除的配置项恢复默认值；只有参数变化的消费者被重启，且保留自身的 GROUP_ID
+ */
+class AliyunOnsRefresherTest {
+
+	private final AliyunOnsMqPoolProperties poolProperties = new AliyunOnsMqPoolProperties();
+
+	private final AliyunOnsMqProperties onsMqProperties = new AliyunOnsMqProperties();
+
+	private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+	private final AliyunOnsMqTemplate template = new AliyunOnsMqTemplate(poolProperties);
+
+	private final AliyunProperties onsProperties = new AliyunProperties();
+
+	private final AliyunOnsRefresher refresher;
+
+	AliyunOnsRefresherTest() {
+		onsProperties.setAccessKey("accessKey");
+		onsProperties.setSecretKey("secretKey");
+		onsMqProperties.setNameSrvAddr("http://localhost:8080");
+		this.refresher = new AliyunOnsRefresher(template, onsProperties, onsMqProperties, poolProperties, beanFactory);
+	}
+
+	@AfterEach
+	void shutdown() {
+		template.getThreadPool().shutdownNow();
+	}
+
+	@Test
+	void restartsOnlyChangedConsumers() {
+		StubConsumer orders = new StubConsumer(this.properties("GID_ORDERS", 4));
+		StubOrderConsumer payments = new StubOrderConsumer(this.properties("GID_PAYMENTS", 8));
+		orders.start();
+		payments.start();
+		beanFactory.addBean("orders", orders);
+		beanFactory.addBean("payments", payments);
+
+		onsMqProperties.setConsumeThreadNums(8);
+		refresher.refreshConsumers();
+
+		assertEquals(1, orders.restarts);
+		assertTrue(orders.isStarted());
+		assertEquals("8", String.valueOf(orders.getProperties().get(PropertyKeyConst.ConsumeThreadNums)));
+		assertEquals("GID_ORDERS", orders.getProperties().get(PropertyKeyConst.GROUP_ID));
+		assertEquals(0, payments.restarts, "consumer whose parameters did not change must keep running");
+		assertEquals("GID_PAYMENTS", payments.getProperties().get(PropertyKeyConst.GROUP_ID));
+	}
+
+	@Test
+	void keepsStoppedConsumerStopped() {
+		StubConsumer orders = new StubConsumer(this.properties("GID_ORDERS", 4));
+		beanFactory.addBean("orders", orders);
+
+		onsMqProperties.setConsumeThreadNums(8);
+		refresher.refreshConsumers();
+
+		assertEquals(0, orders.restarts);
+		assertEquals("8", String.valueOf(orders.getProperties().get(PropertyKeyConst.ConsumeThreadNums)));
+	}
+
+	@Test
+	void resetsRemovedKeysOnRebind() {
+		MockEnvironment environment = new MockEnvironment();
+		environment.setProperty(AliyunOnsMqProperties.PREFIX + ".consume-thread-nums", "16");
+		environment.setProperty(AliyunOnsMqProperties.PREFIX + ".max-cached-message-amount", "100");
+		environment.setProperty(AliyunOnsMqProperties.PREFIX + ".name-srv-addr", "http://localhost:8080");
+		environment.setProperty(AliyunOnsMqPoolProperties.PREFIX + ".maximum-work-queue", "8");
+		refresher.rebind(environment);
+		assertEquals(Integer.valueOf(16), onsMqProperties.getConsumeThreadNums());
+		assertEquals(100, onsMqProperties.getMaxCachedMessageAmount());
+		assertEquals(Integer.valueOf(8), poolProperties.getMaximumWorkQueue());
+		assertEquals(8, template.getThreadPool().getQueue().remainingCapacity());
+
+		MockEnvironment removed = new MockEnvironment();
+		removed.setProperty(AliyunOnsMqProperties.PREFIX + ".name-srv-addr", "http://localhost:8080");
+		refresher.rebind(removed);
+		assertNull(onsMqProperties.getConsumeThreadNums());
+		assertEquals(new AliyunOnsMqProperties().getMaxCachedMessageAmount(), onsMqProperties.getMaxCachedMessageAmount());
+		assertEquals(new AliyunOnsMqPoolProperties().getMaximumWorkQueue(), poolProperties.getMaximumWorkQueue());
+		assertEquals("http://localhost:8080", onsMqProperties.getNameSrvAddr());
+	}
+
+	/*
+	 * 与当前配置一致的消费者参数
+	 */
+	private Properties properties(String groupId, int consumeThreadNums) {
+		Properties properties = onsMqProperties.toConsumerProperties(onsProperties);
+		properties.put(PropertyKeyConst.GROUP_ID, groupId);
+		properties.put(PropertyKeyConst.ConsumeThreadNums, consumeThreadNums);
+		return properties;
+	}
+
+	/**
+	 * 不连接服务端的消费者，记录重启次数
+	 */
+	private static class StubConsumer extends ConsumerBean {
+
+		private boolean started;
+
+		private int starts;
+
+		private int restarts;
+
+		StubConsumer(Properties properties) {
+			this.setProperties(properties);
+		}
+
+		@Override
+		public void start() {
+			if (starts++ > 0) {
+				restarts++;
+			}
+			started = true;
+		}
+
+		@Override
+		public void shutdown() {
+			started = false;
+		}
+
+		@Override
+		public boolean isStarted() {
+			return started;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return !started;
+		}
+
+	}
+
+	private static class StubOrderConsumer extends OrderConsumerBean {
+
+		private boolean started;
+
+		private int starts;
+
+		private int restarts;
+
+		StubOrderConsumer(Properties properties) {
+			this.setProperties(properties);
+		}
+
+		@Override
+		public void start() {
+			if (starts++ > 0) {
+				restarts++;
+			}
+			started = true;
+		}
+
+		@Override
+		public void shutdown() {
+			started = false;
+		}
+
+		@Override
+		public boolean isStarted() {
+			return started;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return !started;
+		}
+
+	}
+
+}
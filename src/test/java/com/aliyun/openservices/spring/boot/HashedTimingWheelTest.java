@@ -0,0 +1,110 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 时间轮：跨多轮到期、同一槽位不同轮次、取消与停止
+ */
+class HashedTimingWheelTest {
+
+	/*
+	 * 8 个槽位 × 5ms，一轮 40ms
+	 */
+	private final HashedTimingWheel timingWheel = new HashedTimingWheel(Thread::new, 5, TimeUnit.MILLISECONDS, 8);
+
+	@AfterEach
+	void stop() {
+		timingWheel.stop(timeout -> {
+		});
+	}
+
+	@Test
+	void expiresAfterSeveralRounds() throws InterruptedException {
+		CountDownLatch expired = new CountDownLatch(1);
+		long begin = System.nanoTime();
+		timingWheel.newTimeout(expired::countDown, 130, TimeUnit.MILLISECONDS);
+
+		assertTrue(expired.await(2, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) >= 130);
+	}
+
+	@Test
+	void keepsLaterRoundsInSameBucket() throws InterruptedException {
+		List<String> order = new ArrayList<>();
+		CountDownLatch expired = new CountDownLatch(3);
+		// 10ms、50ms、90ms 落在同一槽位，分别在第 0、1、2 轮到期
+		timingWheel.newTimeout(record(order, "round2", expired), 90, TimeUnit.MILLISECONDS);
+		timingWheel.newTimeout(record(order, "round0", expired), 10, TimeUnit.MILLISECONDS);
+		timingWheel.newTimeout(record(order, "round1", expired), 50, TimeUnit.MILLISECONDS);
+
+		assertTrue(expired.await(2, TimeUnit.SECONDS));
+		synchronized (order) {
+			assertEquals(Arrays.asList("round0", "round1", "round2"), order);
+		}
+	}
+
+	@Test
+	void cancelledTimeoutNeverRuns() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch later = new CountDownLatch(1);
+		HashedTimingWheel.Timeout cancelled = timingWheel.newTimeout(runs::incrementAndGet, 60, TimeUnit.MILLISECONDS);
+		timingWheel.newTimeout(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.cancel());
+		assertEquals(1, timingWheel.getPendingCount());
+		assertTrue(later.await(2, TimeUnit.SECONDS));
+		assertEquals(0, runs.get());
+		assertTrue(cancelled.isCancelled());
+		assertFalse(cancelled.isExpired());
+	}
+
+	@Test
+	void expiredTimeoutCannotBeCancelled() throws InterruptedException {
+		CountDownLatch expired = new CountDownLatch(1);
+		HashedTimingWheel.Timeout timeout = timingWheel.newTimeout(expired::countDown, 1, TimeUnit.MILLISECONDS);
+
+		assertTrue(expired.await(2, TimeUnit.SECONDS));
+		assertTrue(timeout.isExpired());
+		assertFalse(timeout.cancel());
+		assertEquals(0, timingWheel.getPendingCount());
+	}
+
+	@Test
+	void stopReturnsUnprocessedTimeouts() throws InterruptedException {
+		HashedTimingWheel.Timeout pending = timingWheel.newTimeout(() -> {
+		}, 10, TimeUnit.SECONDS);
+		HashedTimingWheel.Timeout cancelled = timingWheel.newTimeout(() -> {
+		}, 10, TimeUnit.SECONDS);
+		cancelled.cancel();
+		// 等待工作线程把任务转移到槽位
+		TimeUnit.MILLISECONDS.sleep(20);
+
+		List<HashedTimingWheel.Timeout> unprocessed = new ArrayList<>();
+		timingWheel.stop(unprocessed::add);
+
+		assertEquals(Arrays.asList(pending), unprocessed);
+	}
+
+	private static Runnable record(List<String> order, String name, CountDownLatch expired) {
+		return () -> {
+			synchronized (order) {
+				order.add(name);
+			}
+			expired.countDown();
+		};
+	}
+
+}
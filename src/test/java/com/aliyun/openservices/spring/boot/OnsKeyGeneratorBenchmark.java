@@ -0,0 +1,57 @@
+package com.aliyun.openservices.spring.boot;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 消息 Key 生成基准：UUID.randomUUID().toString() 与 {@link TimeOrderedOnsKeyGenerator} 在多线程竞争下的对比
+ * 运行：mvn -Ploadtest test-compile exec:exec@benchmark -Dbenchmark=com.aliyun.openservices.spring.boot.OnsKeyGeneratorBenchmark
+ * 加 "-Dbenchmark.args=-prof gc" 可查看每次调用的分配字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class OnsKeyGeneratorBenchmark {
+
+	private final TimeOrderedOnsKeyGenerator keyGenerator = new TimeOrderedOnsKeyGenerator(1);
+
+	@Benchmark
+	public String uuid() {
+		return UUID.randomUUID().toString();
+	}
+
+	@Benchmark
+	public String timeOrderedKey() {
+		return keyGenerator.generateKey(null);
+	}
+
+	@Benchmark
+	public long timeOrderedId() {
+		return keyGenerator.nextId();
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).include(OnsKeyGeneratorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
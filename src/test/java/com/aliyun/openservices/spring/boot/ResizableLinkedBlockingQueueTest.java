@@ -0,0 +1,117 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 可调整容量的队列与多线程发送线程池：并发入队不超过容量，缩容不丢弃已入队的任务，扩容立即生效
+ */
+class ResizableLinkedBlockingQueueTest {
+
+	@Test
+	void neverExceedsCapacityUnderConcurrentOffers() throws Exception {
+		ResizableLinkedBlockingQueue<Integer> queue = new ResizableLinkedBlockingQueue<>(100);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger accepted = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>(threads);
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < 1000; j++) {
+						if (queue.offer(j)) {
+							accepted.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(100, accepted.get());
+		assertEquals(100, queue.size());
+		assertEquals(0, queue.remainingCapacity());
+	}
+
+	@Test
+	void shrinksWithoutDroppingQueuedTasks() {
+		ResizableLinkedBlockingQueue<Integer> queue = new ResizableLinkedBlockingQueue<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(queue.offer(i));
+		}
+
+		queue.setCapacity(2);
+		assertEquals(4, queue.size());
+		assertFalse(queue.offer(4));
+		queue.poll();
+		queue.poll();
+		assertFalse(queue.offer(4), "queue must drain below the new capacity first");
+		queue.poll();
+		assertTrue(queue.offer(4));
+
+		queue.setCapacity(8);
+		assertEquals(6, queue.remainingCapacity());
+	}
+
+	@Test
+	void resizesSendPoolInPlace() throws Exception {
+		AliyunOnsMqPoolProperties poolProperties = new AliyunOnsMqPoolProperties();
+		poolProperties.setCorePoolSize(1);
+		poolProperties.setMaximumPoolSize(1);
+		poolProperties.setMaximumWorkQueue(1);
+		AliyunOnsMqTemplate template = new AliyunOnsMqTemplate(poolProperties);
+		ThreadPoolExecutor threadPool = template.getThreadPool();
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			threadPool.execute(() -> this.await(release));
+			threadPool.execute(() -> this.await(release));
+			assertEquals(0, threadPool.getQueue().remainingCapacity());
+
+			poolProperties.setCorePoolSize(2);
+			poolProperties.setMaximumPoolSize(4);
+			poolProperties.setMaximumWorkQueue(3);
+			template.resizePool(poolProperties);
+
+			assertEquals(2, threadPool.getCorePoolSize());
+			assertEquals(4, threadPool.getMaximumPoolSize());
+			assertEquals(3, ((ResizableLinkedBlockingQueue<Runnable>) threadPool.getQueue()).getCapacity());
+			// 原有任务仍在执行或排队，新容量立即可用
+			threadPool.execute(() -> this.await(release));
+			assertTrue(threadPool.getQueue().size() <= 3);
+		} finally {
+			release.countDown();
+			threadPool.shutdown();
+			assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+		}
+		assertEquals(3, threadPool.getCompletedTaskCount());
+	}
+
+	private void await(CountDownLatch release) {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.aliyun.openservices.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 时间有序 Key：多线程竞争下单调递增且不重复，编码后字典序与数值顺序一致，节点 ID 必须显式指定
+ */
+class TimeOrderedOnsKeyGeneratorTest {
+
+	private static final int THREADS = 8;
+
+	private static final int PER_THREAD = 50_000;
+
+	@Test
+	void generatesMonotonicIdsPerThread() throws Exception {
+		TimeOrderedOnsKeyGenerator keyGenerator = new TimeOrderedOnsKeyGenerator(7);
+		List<long[]> generated = this.generateConcurrently(keyGenerator);
+
+		for (long[] ids : generated) {
+			for (int i = 1; i < ids.length; i++) {
+				assertTrue(ids[i] > ids[i - 1], "ids must increase within a thread");
+			}
+		}
+	}
+
+	@Test
+	void generatesUniqueIdsUnderContention() throws Exception {
+		TimeOrderedOnsKeyGenerator keyGenerator = new TimeOrderedOnsKeyGenerator(7);
+		List<long[]> generated = this.generateConcurrently(keyGenerator);
+
+		Set<Long> unique = new HashSet<>(THREADS * PER_THREAD * 2);
+		for (long[] ids : generated) {
+			for (long id : ids) {
+				assertTrue(unique.add(id), "duplicate id " + id);
+				assertEquals(7, TimeOrderedOnsKeyGenerator.nodeId(id));
+			}
+		}
+		assertEquals(THREADS * PER_THREAD, unique.size());
+	}
+
+	@Test
+	void keysSortLikeIds() {
+		TimeOrderedOnsKeyGenerator keyGenerator = new TimeOrderedOnsKeyGenerator(1023);
+		String previous = keyGenerator.generateKey(null);
+		for (int i = 0; i < 10_000; i++) {
+			String key = keyGenerator.generateKey(null);
+			assertEquals(TimeOrderedOnsKeyGenerator.KEY_LENGTH, key.length());
+			assertTrue(key.compareTo(previous) > 0, key + " must sort after " + previous);
+			assertTrue(TimeOrderedOnsKeyGenerator.decode(key) > TimeOrderedOnsKeyGenerator.decode(previous));
+			previous = key;
+		}
+	}
+
+	@Test
+	void decodesEncodedId() {
+		long id = new TimeOrderedOnsKeyGenerator(3).nextId();
+		String key = TimeOrderedOnsKeyGenerator.encode(id);
+
+		assertTrue(TimeOrderedOnsKeyGenerator.matches(key));
+		assertEquals(id, TimeOrderedOnsKeyGenerator.decode(key));
+		assertEquals(3, TimeOrderedOnsKeyGenerator.nodeId(id));
+		assertTrue(Math.abs(System.currentTimeMillis() - TimeOrderedOnsKeyGenerator.timestamp(id)) < 10_000);
+		assertFalse(TimeOrderedOnsKeyGenerator.matches("not-a-key"));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedOnsKeyGenerator.decode("0123456789!"));
+	}
+
+	@Test
+	void rejectsNodeIdOutOfRange() {
+		assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOnsKeyGenerator(-1));
+		assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOnsKeyGenerator(TimeOrderedOnsKeyGenerator.MAX_NODE_ID + 1));
+	}
+
+	private List<long[]> generateConcurrently(TimeOrderedOnsKeyGenerator keyGenerator) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<long[]>> futures = new ArrayList<>(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(executor.submit(() -> {
+					long[] ids = new long[PER_THREAD];
+					start.await();
+					for (int i = 0; i < PER_THREAD; i++) {
+						ids[i] = keyGenerator.nextId();
+					}
+					return ids;
+				}));
+			}
+			start.countDown();
+			List<long[]> generated = new ArrayList<>(THREADS);
+			for (Future<long[]> future : futures) {
+				generated.add(future.get());
+			}
+			return generated;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.aliyun.openservices.spring.boot.actuate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import com.aliyun.openservices.ons.api.PropertyKeyConst;
+import com.aliyun.openservices.ons.api.bean.ConsumerBean;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.AliyunOnsRefresher;
+import com.aliyun.openservices.spring.boot.AliyunProperties;
+
+/**
+ * 健康检查：因刷新配置正在重启的消费者不影响健康状态，其他被关闭的消费者为 DOWN
+ */
+class AliyunOnsHealthIndicatorTest {
+
+	private final AliyunOnsMqTemplate template = new AliyunOnsMqTemplate(new AliyunOnsMqPoolProperties());
+
+	private final AliyunOnsMqProperties onsMqProperties = new AliyunOnsMqProperties();
+
+	private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+	private final AliyunOnsRefresher refresher;
+
+	private final AliyunOnsHealthIndicator healthIndicator;
+
+	AliyunOnsHealthIndicatorTest() {
+		AliyunProperties onsProperties = new AliyunProperties();
+		onsProperties.setAccessKey("accessKey");
+		onsProperties.setSecretKey("secretKey");
+		onsMqProperties.setNameSrvAddr("http://localhost:8080");
+		this.refresher = new AliyunOnsRefresher(template, onsProperties, onsMqProperties, new AliyunOnsMqPoolProperties(), beanFactory);
+		this.healthIndicator = new AliyunOnsHealthIndicator(template, beanFactory, refresher);
+	}
+
+	@AfterEach
+	void shutdown() {
+		template.getThreadPool().shutdownNow();
+	}
+
+	@Test
+	void ignoresConsumerRestartedByRefresh() throws Exception {
+		StubConsumer consumer = new StubConsumer();
+		consumer.start();
+		beanFactory.addBean("orderConsumer", consumer);
+		onsMqProperties.setConsumeThreadNums(8);
+
+		Thread refreshing = new Thread(refresher::refreshConsumers);
+		refreshing.start();
+		assertTrue(consumer.restarting.await(5, TimeUnit.SECONDS));
+
+		Health health = healthIndicator.health();
+		assertEquals(Status.UP, health.getStatus());
+		assertEquals("restarting", health.getDetails().get("orderConsumer"));
+
+		consumer.release.countDown();
+		refreshing.join(5000);
+		assertFalse(refreshing.isAlive());
+		assertEquals("8", String.valueOf(consumer.getProperties().get(PropertyKeyConst.ConsumeThreadNums)));
+		health = healthIndicator.health();
+		assertEquals(Status.UP, health.getStatus());
+		assertEquals("started", health.getDetails().get("orderConsumer"));
+	}
+
+	@Test
+	void reportsClosedConsumerDown() {
+		StubConsumer consumer = new StubConsumer();
+		consumer.start();
+		consumer.shutdown();
+		beanFactory.addBean("orderConsumer", consumer);
+
+		Health health = healthIndicator.health();
+		assertEquals(Status.DOWN, health.getStatus());
+		assertEquals("closed", health.getDetails().get("orderConsumer"));
+	}
+
+	/**
+	 * 不连接服务端的消费者，重启时在启动前等待测试放行
+	 */
+	private static class StubConsumer extends ConsumerBean {
+
+		private final CountDownLatch restarting = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private volatile boolean started;
+
+		private volatile boolean closed;
+
+		private int starts;
+
+		StubConsumer() {
+			Properties properties = new Properties();
+			properties.put(PropertyKeyConst.ConsumeThreadNums, 4);
+			this.setProperties(properties);
+		}
+
+		@Override
+		public void start() {
+			if (starts++ > 0) {
+				restarting.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			started = true;
+			closed = false;
+		}
+
+		@Override
+		public void shutdown() {
+			started = false;
+			closed = true;
+		}
+
+		@Override
+		public boolean isStarted() {
+			return started;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+	}
+
+}
@@ -0,0 +1,518 @@
+package com.aliyun.openservices.spring.boot.loadtest;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aliyun.openservices.ons.api.Admin;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Consumer;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.ONSFactory;
+import com.aliyun.openservices.ons.api.OnExceptionContext;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendCallback;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.ons.api.batch.BatchConsumer;
+import com.aliyun.openservices.ons.api.order.ConsumeOrderContext;
+import com.aliyun.openservices.ons.api.order.OrderConsumer;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+import com.aliyun.openservices.spring.boot.AbstractBatchMessageListener;
+import com.aliyun.openservices.spring.boot.AbstractMessageListener;
+import com.aliyun.openservices.spring.boot.AbstractMessageOrderListener;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.TimeOrderedOnsKeyGenerator;
+
+/**
+ * 压测工具：按固定速率（开放模型）通过 {@link AliyunOnsMqTemplate} 发送消息，或向三种抽象监听器投递消息，输出延迟直方图与资源统计
+ * 发送场景：sync、async、oneway、multi、order；消费场景：consume、consume-batch、consume-order。
+ * 默认使用进程内模拟客户端 {@link StubOnsClient}，度量 starter 自身的开销；-Dloadtest.endpoint=real 时连接真实实例。
+ * 运行：mvn -Ploadtest test-compile exec:java -Dloadtest.scenario=async -Dloadtest.rate=20000
+ * 报告写入 target/loadtest/{scenario}.json 与 .hgrm；设置 -Dloadtest.assert.* 后不满足断言时以 1 退出，可用于 CI 对比回归。
+ * exec:java 与 Maven 共用一个 JVM，GC 与分配统计需要准确时直接以 java 命令运行该类
+ */
+public class OnsLoadTest {
+
+	private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final OnsLoadTestConfig config;
+
+	private final OnsLoadTestReport report;
+
+	private final AliyunOnsMqTemplate onsMqTemplate;
+
+	private final List<Admin> clients = new ArrayList<>();
+
+	private final LongAdder issued = new LongAdder();
+
+	/*
+	 * 发送时抛出的异常数，如发送线程池已满
+	 */
+	private final LongAdder errors = new LongAdder();
+
+	private final byte[] body;
+
+	private Producer producer;
+
+	private OrderProducer orderProducer;
+
+	/*
+	 * 模拟客户端的消费线程池，对应 ConsumeThreadNums
+	 */
+	private ThreadPoolExecutor consumePool;
+
+	private Object listener;
+
+	public OnsLoadTest(OnsLoadTestConfig config, OnsLoadTestReport report) {
+		this.config = config;
+		this.report = report;
+		this.onsMqTemplate = new AliyunOnsMqTemplate(new AliyunOnsMqPoolProperties());
+		this.onsMqTemplate.setKeyGenerator(new TimeOrderedOnsKeyGenerator(1));
+		this.body = new byte[config.bodySize];
+	}
+
+	public static void main(String[] args) throws Exception {
+		// 发送模板与监听器按条打印 INFO 日志，压测时默认只输出 WARN 以上，避免日志 I/O 主导结果
+		if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+			System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		}
+		OnsLoadTestConfig config = new OnsLoadTestConfig();
+		OnsLoadTest loadTest = new OnsLoadTest(config, new OnsLoadTestReport());
+		Map<String, Object> result;
+		try {
+			result = loadTest.run();
+		} finally {
+			loadTest.close();
+		}
+		System.exit(check(config, result) ? 0 : 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean check(OnsLoadTestConfig config, Map<String, Object> result) {
+		Map<String, Object> response = (Map<String, Object>) result.get("responseMicros");
+		long p99 = ((Number) response.get("p99")).longValue();
+		long throughput = ((Number) result.get("throughput")).longValue();
+		System.out.println("loadtest scenario=" + config.scenario + " throughput=" + throughput + "/s completed=" + result.get("completed")
+				+ " failed=" + result.get("failed") + " errors=" + result.get("errors") + " p50=" + response.get("p50") + "us p99=" + p99 + "us p999=" + response.get("p999")
+				+ "us max=" + response.get("max") + "us allocatedBytesPerMessage=" + result.get("allocatedBytesPerMessage") + " gc=" + result.get("gc"));
+		boolean passed = true;
+		if (config.assertP99Micros > 0 && p99 > config.assertP99Micros) {
+			System.out.println("loadtest FAILED: p99 " + p99 + "us > " + config.assertP99Micros + "us");
+			passed = false;
+		}
+		if (config.assertMinThroughput > 0 && throughput < config.assertMinThroughput) {
+			System.out.println("loadtest FAILED: throughput " + throughput + "/s < " + config.assertMinThroughput + "/s");
+			passed = false;
+		}
+		return passed;
+	}
+
+	public Map<String, Object> run() throws Exception {
+		this.connect();
+		report.watch("template", onsMqTemplate.getThreadPool());
+		if (consumePool != null) {
+			report.watch("consume", consumePool);
+		}
+		long rejectedBefore = onsMqTemplate.getRejectedCount();
+
+		// consume-batch 每个计划时间投递一批消息
+		int messagesPerSlot = "consume-batch".equals(config.scenario) && config.isStub() ? config.batchSize : 1;
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) * messagesPerSlot / config.rate;
+		long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+		long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+		report.measure(measureFrom, measureTo);
+
+		// 生成线程在测量结束后才退出，保证其分配的字节计入统计
+		CountDownLatch finished = new CountDownLatch(config.threads);
+		CountDownLatch released = new CountDownLatch(1);
+		for (int i = 0; i < config.threads; i++) {
+			int worker = i;
+			Thread thread = new Thread(() -> {
+				try {
+					this.generate(worker, start, intervalNanos, measureFrom, measureTo);
+				} finally {
+					finished.countDown();
+					awaitQuietly(released);
+				}
+			}, "loadtest-generator-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		LockSupport.parkNanos(measureFrom - System.nanoTime());
+		report.begin();
+		finished.await();
+		this.drain();
+		report.end();
+		released.countDown();
+
+		report.put("issued", issued.sum());
+		report.put("unfinished", issued.sum() - report.getCompleted() - report.getFailed());
+		report.put("errors", errors.sum());
+		report.put("templateRejected", onsMqTemplate.getRejectedCount() - rejectedBefore);
+		return report.write(config, Paths.get(config.output));
+	}
+
+	/*
+	 * 第 worker 个生成线程负责第 worker、worker + threads ... 个计划时间；落后于计划时不再等待，积压体现在响应时间中
+	 */
+	private void generate(int worker, long start, long intervalNanos, long measureFrom, long measureTo) {
+		for (long slot = worker;; slot += config.threads) {
+			long intended = start + slot * intervalNanos;
+			if (intended >= measureTo) {
+				return;
+			}
+			long delay = intended - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+			try {
+				int count = this.fire(slot, intended);
+				if (intended >= measureFrom) {
+					issued.add(count);
+				}
+			} catch (RuntimeException e) {
+				if (intended >= measureFrom) {
+					errors.increment();
+				}
+			}
+		}
+	}
+
+	/*
+	 * 发出一个计划时间的消息
+	 *
+	 * @return 消息数量
+	 */
+	private int fire(long slot, long intended) {
+		String shardingKey = "key-" + (slot % config.shardingKeys);
+		switch (config.scenario) {
+		case "sync":
+			onsMqTemplate.sendSyncMes(producer, this.message(intended));
+			return 1;
+		case "async":
+			onsMqTemplate.sendAsyncMes(producer, this.message(intended));
+			return 1;
+		case "oneway":
+			onsMqTemplate.sendOneWayMes(producer, this.message(intended));
+			return 1;
+		case "multi":
+			onsMqTemplate.sendMultiMes(producer, this.message(intended));
+			return 1;
+		case "order":
+			onsMqTemplate.sendOrderMes(orderProducer, this.message(intended), shardingKey);
+			return 1;
+		case "consume":
+		case "consume-batch":
+		case "consume-order":
+			return this.deliver(intended, shardingKey);
+		default:
+			throw new IllegalArgumentException("Unknown scenario: " + config.scenario);
+		}
+	}
+
+	/*
+	 * 消费场景：模拟客户端直接在消费线程池中调用监听器；真实实例时发送消息，由订阅的监听器记录
+	 */
+	private int deliver(long intended, String shardingKey) {
+		if (!config.isStub()) {
+			if ("consume-order".equals(config.scenario)) {
+				onsMqTemplate.sendOrderMes(orderProducer, this.message(intended), shardingKey);
+			} else {
+				onsMqTemplate.sendOneWayMes(producer, this.message(intended));
+			}
+			return 1;
+		}
+		if (listener instanceof AbstractBatchMessageListener) {
+			List<Message> messages = new ArrayList<>(config.batchSize);
+			for (int i = 0; i < config.batchSize; i++) {
+				messages.add(this.message(intended));
+			}
+			consumePool.execute(() -> ((AbstractBatchMessageListener) listener).consume(messages, new ConsumeContext()));
+			return messages.size();
+		}
+		Message message = this.message(intended);
+		if (listener instanceof AbstractMessageOrderListener) {
+			consumePool.execute(() -> ((AbstractMessageOrderListener) listener).consume(message, new ConsumeOrderContext()));
+		} else {
+			consumePool.execute(() -> ((AbstractMessageListener) listener).consume(message, new ConsumeContext()));
+		}
+		return 1;
+	}
+
+	private Message message(long intended) {
+		Message message = new Message(config.topic, "loadtest", body);
+		OnsLoadTestReport.stamp(message, intended);
+		return message;
+	}
+
+	/*
+	 * 等待测量区间内的消息完成，超时后未完成的计入 unfinished
+	 */
+	private void drain() {
+		long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+		while (report.getCompleted() + report.getFailed() < issued.sum() && System.nanoTime() - deadline < 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+	}
+
+	private void connect() {
+		long workNanos = TimeUnit.MICROSECONDS.toNanos(config.consumeMicros);
+		switch (config.scenario) {
+		case "consume-batch":
+			this.listener = new LoadTestBatchListener(report, workNanos);
+			break;
+		case "consume-order":
+			this.listener = new LoadTestOrderListener(report, workNanos);
+			break;
+		default:
+			this.listener = new LoadTestListener(report, workNanos);
+		}
+		if (config.isStub()) {
+			StubOnsClient client = new StubOnsClient(config.stubLatencyMicros);
+			client.start();
+			clients.add(client);
+			this.producer = config.isConsume() ? client : new RecordingProducer(client, client, report);
+			this.orderProducer = (OrderProducer) this.producer;
+			if (config.isConsume()) {
+				this.consumePool = new ThreadPoolExecutor(config.threads, config.threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+			}
+			return;
+		}
+		Properties properties = config.onsProperties();
+		Producer realProducer = ONSFactory.createProducer(properties);
+		OrderProducer realOrderProducer = ONSFactory.createOrderProducer(properties);
+		realProducer.start();
+		realOrderProducer.start();
+		clients.add(realProducer);
+		clients.add(realOrderProducer);
+		if (config.isConsume()) {
+			this.producer = realProducer;
+			this.orderProducer = realOrderProducer;
+			this.subscribe(properties);
+		} else {
+			RecordingProducer recording = new RecordingProducer(realProducer, realOrderProducer, report);
+			this.producer = recording;
+			this.orderProducer = recording;
+		}
+	}
+
+	private void subscribe(Properties properties) {
+		if (listener instanceof AbstractBatchMessageListener) {
+			BatchConsumer consumer = ONSFactory.createBatchConsumer(properties);
+			consumer.subscribe(config.topic, "*", (AbstractBatchMessageListener) listener);
+			consumer.start();
+			clients.add(consumer);
+		} else if (listener instanceof AbstractMessageOrderListener) {
+			OrderConsumer consumer = ONSFactory.createOrderedConsumer(properties);
+			consumer.subscribe(config.topic, "*", (AbstractMessageOrderListener) listener);
+			consumer.start();
+			clients.add(consumer);
+		} else {
+			Consumer consumer = ONSFactory.createConsumer(properties);
+			consumer.subscribe(config.topic, "*", (AbstractMessageListener) listener);
+			consumer.start();
+			clients.add(consumer);
+		}
+	}
+
+	public void close() {
+		for (Admin client : clients) {
+			client.shutdown();
+		}
+		if (consumePool != null) {
+			consumePool.shutdownNow();
+		}
+		onsMqTemplate.getThreadPool().shutdownNow();
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void work(long workNanos) {
+		if (workNanos > 0) {
+			LockSupport.parkNanos(workNanos);
+		}
+	}
+
+	/**
+	 * 发送完成（同步返回、异步回调、单向发出）时记录延迟
+	 */
+	private static final class RecordingProducer implements Producer, OrderProducer {
+
+		private final Producer producer;
+
+		private final OrderProducer orderProducer;
+
+		private final OnsLoadTestReport report;
+
+		RecordingProducer(Producer producer, OrderProducer orderProducer, OnsLoadTestReport report) {
+			this.producer = producer;
+			this.orderProducer = orderProducer;
+			this.report = report;
+		}
+
+		@Override
+		public SendResult send(Message message) {
+			try {
+				SendResult sendResult = producer.send(message);
+				report.record(message);
+				return sendResult;
+			} catch (RuntimeException e) {
+				report.fail(message);
+				throw e;
+			}
+		}
+
+		@Override
+		public SendResult send(Message message, String shardingKey) {
+			try {
+				SendResult sendResult = orderProducer.send(message, shardingKey);
+				report.record(message);
+				return sendResult;
+			} catch (RuntimeException e) {
+				report.fail(message);
+				throw e;
+			}
+		}
+
+		@Override
+		public void sendOneway(Message message) {
+			producer.sendOneway(message);
+			report.record(message);
+		}
+
+		@Override
+		public void sendAsync(Message message, SendCallback sendCallback) {
+			producer.sendAsync(message, new SendCallback() {
+
+				@Override
+				public void onSuccess(SendResult sendResult) {
+					report.record(message);
+					sendCallback.onSuccess(sendResult);
+				}
+
+				@Override
+				public void onException(OnExceptionContext context) {
+					report.fail(message);
+					sendCallback.onException(context);
+				}
+			});
+		}
+
+		@Override
+		public void setCallbackExecutor(java.util.concurrent.ExecutorService callbackExecutor) {
+			producer.setCallbackExecutor(callbackExecutor);
+		}
+
+		@Override
+		public boolean isStarted() {
+			return producer.isStarted();
+		}
+
+		@Override
+		public boolean isClosed() {
+			return producer.isClosed();
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void updateCredential(Properties credentialProperties) {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+	}
+
+	static final class LoadTestListener extends AbstractMessageListener {
+
+		private final OnsLoadTestReport report;
+
+		private final long workNanos;
+
+		LoadTestListener(OnsLoadTestReport report, long workNanos) {
+			this.report = report;
+			this.workNanos = workNanos;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message) {
+			work(workNanos);
+			report.record(message);
+		}
+
+	}
+
+	static final class LoadTestBatchListener extends AbstractBatchMessageListener {
+
+		private final OnsLoadTestReport report;
+
+		private final long workNanos;
+
+		LoadTestBatchListener(OnsLoadTestReport report, long workNanos) {
+			this.report = report;
+			this.workNanos = workNanos;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message, ConsumeContext context) {
+			work(workNanos);
+			report.record(message);
+		}
+
+	}
+
+	static final class LoadTestOrderListener extends AbstractMessageOrderListener {
+
+		private final OnsLoadTestReport report;
+
+		private final long workNanos;
+
+		LoadTestOrderListener(OnsLoadTestReport report, long workNanos) {
+			this.report = report;
+			this.workNanos = workNanos;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message) {
+			work(workNanos);
+			report.record(message);
+		}
+
+	}
+
+}
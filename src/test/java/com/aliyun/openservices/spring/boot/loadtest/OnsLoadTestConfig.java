@@ -0,0 +1,127 @@
+package com.aliyun.openservices.spring.boot.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 压测参数，均从 -Dloadtest.* 系统属性读取
+ */
+public class OnsLoadTestConfig {
+
+	public static final String PREFIX = "loadtest.";
+
+	/*
+	 * 场景：sync、async、oneway、multi、order（发送），consume、consume-batch、consume-order（消费）
+	 */
+	final String scenario = string("scenario", "sync");
+
+	/*
+	 * stub 为进程内模拟客户端；real 使用 -Dloadtest.ons.* 中的 AccessKey、SecretKey、NAMESRV_ADDR、GROUP_ID 等连接真实实例
+	 */
+	final String endpoint = string("endpoint", "stub");
+
+	/*
+	 * 目标速率（条/秒），按固定间隔安排每条消息的计划发送时间（开放模型）
+	 */
+	final int rate = integer("rate", 5000);
+
+	/*
+	 * 发送线程数；消费场景下为模拟的消费线程数
+	 */
+	final int threads = integer("threads", 16);
+
+	final int warmupSeconds = integer("warmupSeconds", 5);
+
+	final int durationSeconds = integer("durationSeconds", 30);
+
+	final int bodySize = integer("bodySize", 1024);
+
+	final String topic = string("topic", "LOAD_TEST");
+
+	/*
+	 * 顺序消息的 shardingKey 数量
+	 */
+	final int shardingKeys = integer("shardingKeys", 64);
+
+	/*
+	 * consume-batch 场景每批消息数
+	 */
+	final int batchSize = integer("batchSize", 32);
+
+	/*
+	 * 模拟客户端的发送耗时（微秒）
+	 */
+	final int stubLatencyMicros = integer("stub.latencyMicros", 500);
+
+	/*
+	 * 消费场景中监听器每条消息的模拟处理耗时（微秒）
+	 */
+	final int consumeMicros = integer("consumeMicros", 200);
+
+	/*
+	 * 报告输出目录，写入 {scenario}.json 与 {scenario}.hgrm
+	 */
+	final String output = string("output", "target/loadtest");
+
+	/*
+	 * 断言：p99 响应时间上限（微秒），0 表示不检查；不满足时进程以 1 退出，便于 CI 判定回归
+	 */
+	final long assertP99Micros = longValue("assert.p99Micros", 0);
+
+	/*
+	 * 断言：吞吐量下限（条/秒），0 表示不检查
+	 */
+	final double assertMinThroughput = Double.parseDouble(string("assert.minThroughput", "0"));
+
+	boolean isConsume() {
+		return scenario.startsWith("consume");
+	}
+
+	boolean isStub() {
+		return "stub".equals(endpoint);
+	}
+
+	/*
+	 * 连接真实实例的客户端参数：-Dloadtest.ons.AccessKey=... 去掉前缀后原样传给 ONSFactory
+	 */
+	Properties onsProperties() {
+		Properties properties = new Properties();
+		String prefix = PREFIX + "ons.";
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(prefix)) {
+				properties.setProperty(name.substring(prefix.length()), System.getProperty(name));
+			}
+		}
+		return properties;
+	}
+
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("scenario", scenario);
+		map.put("endpoint", endpoint);
+		map.put("rate", rate);
+		map.put("threads", threads);
+		map.put("warmupSeconds", warmupSeconds);
+		map.put("durationSeconds", durationSeconds);
+		map.put("bodySize", bodySize);
+		map.put("shardingKeys", shardingKeys);
+		map.put("batchSize", batchSize);
+		map.put("stubLatencyMicros", stubLatencyMicros);
+		map.put("consumeMicros", consumeMicros);
+		return map;
+	}
+
+	private static String string(String name, String defaultValue) {
+		return System.getProperty(PREFIX + name, defaultValue);
+	}
+
+	private static int integer(String name, int defaultValue) {
+		return Integer.parseInt(string(name, String.valueOf(defaultValue)));
+	}
+
+	private static long longValue(String name, long defaultValue) {
+		return Long.parseLong(string(name, String.valueOf(defaultValue)));
+	}
+
+}
@@ -0,0 +1,297 @@
+package com.aliyun.openservices.spring.boot.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.shade.com.alibaba.fastjson.JSON;
+
+/**
+ * 压测记录与报告
+ * 每条消息带有计划发送时间（{@link #INTENDED}）与实际开始时间（{@link #STARTED}），完成时分别记录：
+ * 响应时间从计划时间算起，发送端积压时的排队等待也计入其中，即修正了 coordinated omission；服务时间从实际开始算起，用于对照。
+ * 报告包含吞吐量、两组延迟分位数、测量期间的 GC 次数与耗时、线程分配字节数、线程池饱和度，输出为 JSON 与 .hgrm
+ */
+class OnsLoadTestReport {
+
+	static final String INTENDED = "loadtest.intended";
+
+	static final String STARTED = "loadtest.started";
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+	private final Recorder response = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+	private final Recorder service = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+	private final LongAdder completed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final Map<String, ThreadPoolExecutor> pools = new LinkedHashMap<>();
+
+	private final Map<String, PoolSaturation> saturations = new LinkedHashMap<>();
+
+	private final Map<String, Object> extras = new LinkedHashMap<>();
+
+	private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "loadtest-sampler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile long measureFrom = Long.MAX_VALUE;
+
+	private volatile long measureTo = Long.MAX_VALUE;
+
+	private long beginMillis;
+
+	private long endMillis;
+
+	private Map<String, long[]> gcBefore;
+
+	private long allocatedBefore;
+
+	private Map<String, long[]> gcAfter;
+
+	private long allocatedAfter;
+
+	/*
+	 * 采样线程池的活跃线程数与队列长度
+	 */
+	void watch(String name, ThreadPoolExecutor pool) {
+		pools.put(name, pool);
+		saturations.put(name, new PoolSaturation(pool.getMaximumPoolSize()));
+	}
+
+	/*
+	 * 计划时间在 [from, to) 内的消息计入报告，之前的为预热
+	 */
+	void measure(long fromNanos, long toNanos) {
+		this.measureFrom = fromNanos;
+		this.measureTo = toNanos;
+	}
+
+	/*
+	 * 测量开始：计划时间到达 measureFrom 时调用
+	 */
+	void begin() {
+		this.beginMillis = System.currentTimeMillis();
+		this.gcBefore = gc();
+		this.allocatedBefore = allocatedBytes();
+		sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * 测量结束：计划时间在测量区间内的消息均已完成或超时
+	 */
+	void end() {
+		this.endMillis = System.currentTimeMillis();
+		sampler.shutdownNow();
+		this.gcAfter = gc();
+		this.allocatedAfter = allocatedBytes();
+	}
+
+	/*
+	 * 附加到报告中的其他数据，如发送线程池拒绝次数
+	 */
+	synchronized void put(String name, Object value) {
+		extras.put(name, value);
+	}
+
+	static void stamp(Message message, long intendedNanos) {
+		message.putUserProperties(INTENDED, String.valueOf(intendedNanos));
+		message.putUserProperties(STARTED, String.valueOf(System.nanoTime()));
+	}
+
+	void record(Message message) {
+		long now = System.nanoTime();
+		String intended = message.getUserProperties(INTENDED);
+		if (intended == null) {
+			return;
+		}
+		long intendedNanos = Long.parseLong(intended);
+		if (intendedNanos < measureFrom || intendedNanos >= measureTo) {
+			return;
+		}
+		completed.increment();
+		response.recordValue(micros(now - intendedNanos));
+		service.recordValue(micros(now - Long.parseLong(message.getUserProperties(STARTED))));
+	}
+
+	void fail(Message message) {
+		String intended = message.getUserProperties(INTENDED);
+		if (intended != null && Long.parseLong(intended) >= measureFrom && Long.parseLong(intended) < measureTo) {
+			failed.increment();
+		}
+	}
+
+	long getCompleted() {
+		return completed.sum();
+	}
+
+	long getFailed() {
+		return failed.sum();
+	}
+
+	private static long micros(long nanos) {
+		return Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+	}
+
+	private synchronized void sample() {
+		for (Map.Entry<String, ThreadPoolExecutor> entry : pools.entrySet()) {
+			saturations.get(entry.getKey()).sample(entry.getValue());
+		}
+	}
+
+	/*
+	 * 写入 {scenario}.json 与 {scenario}.hgrm，返回 JSON 中的汇总数据
+	 */
+	synchronized Map<String, Object> write(OnsLoadTestConfig config, Path directory) throws IOException {
+		Histogram responseHistogram = response.getIntervalHistogram();
+		Histogram serviceHistogram = service.getIntervalHistogram();
+		double seconds = Math.max(1, endMillis - beginMillis) / 1000.0;
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("config", config.toMap());
+		report.put("throughput", Math.round(completed.sum() / seconds));
+		report.put("completed", completed.sum());
+		report.put("failed", failed.sum());
+		report.put("elapsedMillis", endMillis - beginMillis);
+		report.put("responseMicros", percentiles(responseHistogram));
+		report.put("serviceMicros", percentiles(serviceHistogram));
+		report.put("gc", this.gcDelta());
+		report.put("allocatedBytes", allocatedAfter - allocatedBefore);
+		report.put("allocatedBytesPerMessage", completed.sum() == 0 ? 0 : (allocatedAfter - allocatedBefore) / completed.sum());
+		Map<String, Object> poolReport = new LinkedHashMap<>();
+		for (Map.Entry<String, PoolSaturation> entry : saturations.entrySet()) {
+			poolReport.put(entry.getKey(), entry.getValue().toMap());
+		}
+		report.put("pools", poolReport);
+		report.putAll(extras);
+
+		Files.createDirectories(directory);
+		Files.write(directory.resolve(config.scenario + ".json"), JSON.toJSONString(report, true).getBytes(StandardCharsets.UTF_8));
+		try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(config.scenario + ".hgrm")), false, "UTF-8")) {
+			// 以毫秒输出，可直接导入 HdrHistogram Plotter
+			responseHistogram.outputPercentileDistribution(out, 1000.0);
+		}
+		return report;
+	}
+
+	private static Map<String, Object> percentiles(Histogram histogram) {
+		Map<String, Object> percentiles = new LinkedHashMap<>();
+		percentiles.put("mean", Math.round(histogram.getMean()));
+		percentiles.put("p50", histogram.getValueAtPercentile(50));
+		percentiles.put("p90", histogram.getValueAtPercentile(90));
+		percentiles.put("p99", histogram.getValueAtPercentile(99));
+		percentiles.put("p999", histogram.getValueAtPercentile(99.9));
+		percentiles.put("max", histogram.getMaxValue());
+		return percentiles;
+	}
+
+	private Map<String, Object> gcDelta() {
+		Map<String, Object> delta = new LinkedHashMap<>();
+		for (Map.Entry<String, long[]> entry : gcAfter.entrySet()) {
+			long[] before = gcBefore.getOrDefault(entry.getKey(), new long[2]);
+			Map<String, Object> collector = new LinkedHashMap<>();
+			collector.put("count", entry.getValue()[0] - before[0]);
+			collector.put("timeMillis", entry.getValue()[1] - before[1]);
+			delta.put(entry.getKey(), collector);
+		}
+		return delta;
+	}
+
+	private static Map<String, long[]> gc() {
+		Map<String, long[]> gc = new LinkedHashMap<>();
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gc.put(bean.getName(), new long[] { bean.getCollectionCount(), bean.getCollectionTime() });
+		}
+		return gc;
+	}
+
+	/*
+	 * 所有存活线程累计分配的字节数；测量期间退出的线程不计入，压测中的线程池在测量结束前不会关闭
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		long total = 0;
+		for (long bytes : ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 线程池饱和度：活跃线程数与队列长度的最大值、均值，以及活跃线程数达到上限的采样占比
+	 */
+	private static final class PoolSaturation {
+
+		private final int maximumPoolSize;
+
+		private long samples;
+
+		private long saturatedSamples;
+
+		private long activeSum;
+
+		private long queueSum;
+
+		private int maxActive;
+
+		private int maxQueue;
+
+		PoolSaturation(int maximumPoolSize) {
+			this.maximumPoolSize = maximumPoolSize;
+		}
+
+		void sample(ThreadPoolExecutor pool) {
+			int active = pool.getActiveCount();
+			int queue = pool.getQueue().size();
+			samples++;
+			activeSum += active;
+			queueSum += queue;
+			maxActive = Math.max(maxActive, active);
+			maxQueue = Math.max(maxQueue, queue);
+			if (active >= maximumPoolSize) {
+				saturatedSamples++;
+			}
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("maximumPoolSize", maximumPoolSize);
+			map.put("maxActive", maxActive);
+			map.put("meanActive", samples == 0 ? 0 : activeSum / (double) samples);
+			map.put("maxQueue", maxQueue);
+			map.put("meanQueue", samples == 0 ? 0 : queueSum / (double) samples);
+			map.put("saturatedRatio", samples == 0 ? 0 : saturatedSamples / (double) samples);
+			return map;
+		}
+
+	}
+
+}
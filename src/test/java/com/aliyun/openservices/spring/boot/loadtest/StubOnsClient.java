@@ -0,0 +1,106 @@
+package com.aliyun.openservices.spring.boot.loadtest;
+
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendCallback;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+
+/**
+ * 进程内模拟客户端：同步发送阻塞固定耗时后返回，异步发送在耗时之后回调，单向发送立即返回；不经过网络，用于度量 starter 自身的开销上限
+ */
+public class StubOnsClient implements Producer, OrderProducer {
+
+	private final long latencyNanos;
+
+	private final ScheduledExecutorService callbackExecutor;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private volatile boolean started = false;
+
+	public StubOnsClient(long latencyMicros) {
+		this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+		this.callbackExecutor = new ScheduledThreadPoolExecutor(2, r -> {
+			Thread thread = new Thread(r, "stub-ons-callback");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public SendResult send(Message message) {
+		this.await();
+		return this.result(message);
+	}
+
+	@Override
+	public SendResult send(Message message, String shardingKey) {
+		this.await();
+		return this.result(message);
+	}
+
+	@Override
+	public void sendOneway(Message message) {
+		this.result(message);
+	}
+
+	@Override
+	public void sendAsync(Message message, SendCallback sendCallback) {
+		SendResult sendResult = this.result(message);
+		callbackExecutor.schedule(() -> sendCallback.onSuccess(sendResult), latencyNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void setCallbackExecutor(ExecutorService callbackExecutor) {
+	}
+
+	private void await() {
+		if (latencyNanos > 0) {
+			LockSupport.parkNanos(latencyNanos);
+		}
+	}
+
+	private SendResult result(Message message) {
+		String msgId = Long.toHexString(sequence.incrementAndGet());
+		message.setMsgID(msgId);
+		SendResult sendResult = new SendResult();
+		sendResult.setTopic(message.getTopic());
+		sendResult.setMessageId(msgId);
+		return sendResult;
+	}
+
+	@Override
+	public boolean isStarted() {
+		return started;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return !started;
+	}
+
+	@Override
+	public void start() {
+		this.started = true;
+	}
+
+	@Override
+	public void updateCredential(Properties credentialProperties) {
+	}
+
+	@Override
+	public void shutdown() {
+		this.started = false;
+		callbackExecutor.shutdownNow();
+	}
+
+}
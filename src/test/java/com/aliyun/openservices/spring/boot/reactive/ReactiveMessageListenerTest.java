@@ -0,0 +1,164 @@
+package com.aliyun.openservices.spring.boot.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.ConsumeContext;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.AliyunOnsClaimCheck;
+
+import reactor.core.Disposable;
+
+/**
+ * 响应式监听器：订阅方确认后才提交，否认或超时未确认时稍后重新消费；消息经过与其他监听器相同的消费流程
+ */
+class ReactiveMessageListenerTest {
+
+	private final List<ReactiveMessage> received = new CopyOnWriteArrayList<>();
+
+	private Disposable subscription;
+
+	@AfterEach
+	void dispose() {
+		if (subscription != null) {
+			subscription.dispose();
+		}
+	}
+
+	@Test
+	void commitsOnlyAfterAck() throws Exception {
+		ReactiveMessageListener listener = new TimedListener(5000);
+		subscription = listener.flux().subscribe(received::add);
+
+		CompletableFuture<Action> action = CompletableFuture.supplyAsync(() -> listener.consume(message("1"), new ConsumeContext()));
+		this.awaitReceived(1);
+		Thread.sleep(100);
+		assertFalse(action.isDone(), "message must not be committed before ack");
+
+		received.get(0).ack();
+		assertEquals(Action.CommitMessage, action.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void reconsumesOnNack() {
+		ReactiveMessageListener listener = new TimedListener(5000);
+		subscription = listener.flux().subscribe(message -> message.nack(new IllegalStateException("downstream failed")));
+
+		assertEquals(Action.ReconsumeLater, listener.consume(message("1"), new ConsumeContext()));
+	}
+
+	@Test
+	void reconsumesWhenNotAcknowledgedInTime() {
+		ReactiveMessageListener listener = new TimedListener(100);
+		subscription = listener.flux().subscribe(received::add);
+
+		assertEquals(Action.ReconsumeLater, listener.consume(message("1"), new ConsumeContext()));
+		assertEquals(1, received.size());
+		// 超时后的确认不再生效
+		received.get(0).ack();
+	}
+
+	@Test
+	void reconsumesWithoutDemand() {
+		ReactiveMessageListener listener = new TimedListener(100);
+
+		assertEquals(Action.ReconsumeLater, listener.consume(message("1"), new ConsumeContext()));
+	}
+
+	@Test
+	void rejectsCheckedInMessageWithoutClaimCheckBeforeEmitting() {
+		ReactiveMessageListener listener = new TimedListener(100);
+		subscription = listener.flux().subscribe(received::add);
+		Message message = message("reference");
+		message.putUserProperties(AliyunOnsClaimCheck.PROPERTY_REFERENCE, "reference");
+
+		assertEquals(Action.ReconsumeLater, listener.consume(message, new ConsumeContext()));
+		assertTrue(received.isEmpty());
+	}
+
+	@Test
+	void commitsBatchOnlyWhenAllAcknowledged() throws Exception {
+		ReactiveBatchMessageListener listener = new TimedBatchListener(5000);
+		subscription = listener.flux().subscribe(received::add);
+		List<Message> messages = Arrays.asList(message("1"), message("2"), message("3"));
+
+		CompletableFuture<Action> action = CompletableFuture.supplyAsync(() -> listener.consume(messages, new ConsumeContext()));
+		this.awaitReceived(3);
+		received.get(0).ack();
+		received.get(2).ack();
+		Thread.sleep(100);
+		assertFalse(action.isDone());
+
+		received.get(1).ack();
+		assertEquals(Action.CommitMessage, action.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void reconsumesBatchOnAnyNack() {
+		ReactiveBatchMessageListener listener = new TimedBatchListener(5000);
+		subscription = listener.flux().subscribe(message -> {
+			if ("2".equals(new String(message.getMessage().getBody(), StandardCharsets.UTF_8))) {
+				message.nack(new IllegalStateException("downstream failed"));
+			} else {
+				message.ack();
+			}
+		});
+
+		assertEquals(Action.ReconsumeLater, listener.consume(Arrays.asList(message("1"), message("2")), new ConsumeContext()));
+	}
+
+	private void awaitReceived(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (received.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, received.size());
+	}
+
+	private static Message message(String body) {
+		return new Message("TOPIC", "TAG", "KEY-" + body, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static class TimedListener extends ReactiveMessageListener {
+
+		private final long awaitTimeoutMillis;
+
+		TimedListener(long awaitTimeoutMillis) {
+			this.awaitTimeoutMillis = awaitTimeoutMillis;
+		}
+
+		@Override
+		protected long awaitTimeoutMillis() {
+			return awaitTimeoutMillis;
+		}
+
+	}
+
+	private static class TimedBatchListener extends ReactiveBatchMessageListener {
+
+		private final long awaitTimeoutMillis;
+
+		TimedBatchListener(long awaitTimeoutMillis) {
+			this.awaitTimeoutMillis = awaitTimeoutMillis;
+		}
+
+		@Override
+		protected long awaitTimeoutMillis() {
+			return awaitTimeoutMillis;
+		}
+
+	}
+
+}
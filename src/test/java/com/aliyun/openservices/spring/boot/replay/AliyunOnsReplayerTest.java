@@ -0,0 +1,129 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.AliyunOnsReplayProperties;
+
+/**
+ * 断点续传：消息重试用尽后回放停止、断点停在该消息之前，再次回放同一文件时从断点继续且不重复发送已确认的消息
+ */
+class AliyunOnsReplayerTest {
+
+	private static final int MESSAGES = 20;
+
+	@TempDir
+	Path directory;
+
+	private final List<String> sent = new ArrayList<>();
+
+	private volatile String failingKey;
+
+	private int attempts;
+
+	@Test
+	void resumesFromCheckpointAfterFailure() throws IOException, InterruptedException {
+		Path file = directory.resolve("messages.bin");
+		List<OnsReplayRecord> records = this.write(file);
+		AliyunOnsReplayer replayer = this.replayer();
+
+		this.failingKey = "KEY-10";
+		OnsReplayResult first = replayer.replay(file);
+
+		assertFalse(first.isComplete());
+		assertEquals(10, first.getSent());
+		assertEquals(1, first.getFailed());
+		assertEquals(2, first.getRetried());
+		assertEquals(3, attempts);
+		assertEquals(records.get(10).getPosition(), first.getCheckpoint());
+		assertTrue(Files.exists(file.resolveSibling("messages.bin" + AliyunOnsReplayer.CHECKPOINT_SUFFIX)));
+
+		this.failingKey = null;
+		OnsReplayResult second = replayer.replay(file);
+
+		assertTrue(second.isComplete());
+		assertEquals(10, second.getSent());
+		assertEquals(Files.size(file), second.getCheckpoint());
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < MESSAGES; i++) {
+			expected.add("KEY-" + i);
+		}
+		synchronized (sent) {
+			assertEquals(expected, sent);
+		}
+
+		// 已回放完的文件再次回放不发送任何消息
+		OnsReplayResult third = replayer.replay(file);
+		assertTrue(third.isComplete());
+		assertEquals(0, third.getSent());
+	}
+
+	private List<OnsReplayRecord> write(Path file) throws IOException {
+		try (BinaryReplayWriter writer = new BinaryReplayWriter(file)) {
+			for (int i = 0; i < MESSAGES; i++) {
+				writer.write(new Message("TP", "tag", "KEY-" + i, ("body-" + i).getBytes(StandardCharsets.UTF_8)), null);
+			}
+		}
+		List<OnsReplayRecord> records = new ArrayList<>();
+		try (OnsReplaySource source = OnsReplaySource.open(file, 4096)) {
+			OnsReplayRecord record;
+			while ((record = source.next()) != null) {
+				records.add(record);
+			}
+		}
+		return records;
+	}
+
+	/*
+	 * 单发送线程、单条在途，保证发送顺序与文件顺序一致
+	 */
+	private AliyunOnsReplayer replayer() {
+		AliyunOnsReplayProperties properties = new AliyunOnsReplayProperties();
+		properties.setParallelism(1);
+		properties.setMaxInFlight(1);
+		properties.setMaxRetries(2);
+		properties.setRetryBackoffMillis(1);
+		properties.setCheckpointIntervalMillis(10);
+		properties.setMappedRegionSize(4096);
+		return new AliyunOnsReplayer(properties, new AliyunOnsMqTemplate(new AliyunOnsMqPoolProperties()), this.producer(), null);
+	}
+
+	private Producer producer() {
+		return (Producer) Proxy.newProxyInstance(Producer.class.getClassLoader(), new Class<?>[] { Producer.class },
+				(proxy, method, args) -> {
+					if ("send".equals(method.getName())) {
+						Message message = (Message) args[0];
+						if (message.getKey().equals(failingKey)) {
+							attempts++;
+							throw new IllegalStateException("broker unavailable");
+						}
+						synchronized (sent) {
+							sent.add(message.getKey());
+						}
+						SendResult sendResult = new SendResult();
+						sendResult.setTopic(message.getTopic());
+						sendResult.setMessageId("MSG_ID");
+						return sendResult;
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+	}
+
+}
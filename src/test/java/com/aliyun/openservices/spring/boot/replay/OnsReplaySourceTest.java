@@ -0,0 +1,155 @@
+package com.aliyun.openservices.spring.boot.replay;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aliyun.openservices.ons.api.Message;
+
+/**
+ * 回放文件：二进制格式写入后读取一致、JSON Lines 解析、按记录位置断点续读；映射区域远小于文件，覆盖跨区域的记录
+ */
+class OnsReplaySourceTest {
+
+	private static final int REGION_SIZE = 256;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void binaryRoundTrip() throws IOException {
+		byte[] large = new byte[REGION_SIZE * 5 + 7];
+		new Random(42).nextBytes(large);
+		Message withProperties = new Message("TP_ORDER", "created", "ORDER-1", "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+		withProperties.putUserProperties("source", "backfill");
+		withProperties.putUserProperties("中文", "属性值");
+		Message nulls = new Message();
+		nulls.setTopic("TP_EMPTY");
+		Message binary = new Message("TP_BLOB", null, "BLOB-1", large);
+
+		Path file = directory.resolve("messages.bin");
+		try (BinaryReplayWriter writer = new BinaryReplayWriter(file)) {
+			writer.write(withProperties, "1001");
+			writer.write(nulls, null);
+			writer.write(binary, null);
+		}
+		assertTrue(BinaryReplaySource.isBinary(file));
+
+		List<OnsReplayRecord> records = readAll(file);
+		assertEquals(3, records.size());
+
+		OnsReplayRecord first = records.get(0);
+		assertEquals("TP_ORDER", first.getMessage().getTopic());
+		assertEquals("created", first.getMessage().getTag());
+		assertEquals("ORDER-1", first.getMessage().getKey());
+		assertEquals("1001", first.getShardingKey());
+		assertEquals("backfill", first.getMessage().getUserProperties("source"));
+		assertEquals("属性值", first.getMessage().getUserProperties("中文"));
+		assertEquals("{\"id\":1}", new String(first.getMessage().getBody(), StandardCharsets.UTF_8));
+		assertEquals(BinaryReplaySource.HEADER_LENGTH, first.getPosition());
+
+		OnsReplayRecord second = records.get(1);
+		assertEquals("TP_EMPTY", second.getMessage().getTopic());
+		assertNull(second.getMessage().getTag());
+		assertEquals(nulls.getKey(), second.getMessage().getKey());
+		assertNull(second.getShardingKey());
+		assertArrayEquals(new byte[0], second.getMessage().getBody());
+		assertEquals(first.getNextPosition(), second.getPosition());
+
+		OnsReplayRecord third = records.get(2);
+		assertArrayEquals(large, third.getMessage().getBody());
+		assertEquals(Files.size(file), third.getNextPosition());
+	}
+
+	@Test
+	void jsonLinesRoundTrip() throws IOException {
+		byte[] binary = { 0, 1, 2, (byte) 0xff };
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < REGION_SIZE * 2; i++) {
+			padding.append('x');
+		}
+		Path file = directory.resolve("messages.jsonl");
+		Files.write(file, Arrays.asList(
+				"{\"topic\":\"TP_ORDER\",\"tag\":\"created\",\"key\":\"ORDER-1\",\"shardingKey\":\"1001\",\"properties\":{\"source\":\"backfill\",\"retry\":2},\"body\":\"订单\"}",
+				"",
+				"{\"topic\":\"TP_BLOB\",\"key\":\"BLOB-1\",\"shardingKey\":\"\",\"bodyBase64\":\"" + Base64.getEncoder().encodeToString(binary) + "\"}\r",
+				"{\"topic\":\"TP_LONG\",\"body\":\"" + padding + "\"}"), StandardCharsets.UTF_8);
+		assertFalse(BinaryReplaySource.isBinary(file));
+
+		List<OnsReplayRecord> records = readAll(file);
+		assertEquals(3, records.size());
+
+		Message first = records.get(0).getMessage();
+		assertEquals("TP_ORDER", first.getTopic());
+		assertEquals("created", first.getTag());
+		assertEquals("ORDER-1", first.getKey());
+		assertEquals("1001", records.get(0).getShardingKey());
+		assertEquals("backfill", first.getUserProperties("source"));
+		assertEquals("2", first.getUserProperties("retry"));
+		assertEquals("订单", new String(first.getBody(), StandardCharsets.UTF_8));
+		assertEquals(0, records.get(0).getPosition());
+
+		assertNull(records.get(1).getShardingKey());
+		assertArrayEquals(binary, records.get(1).getMessage().getBody());
+
+		assertEquals(padding.toString(), new String(records.get(2).getMessage().getBody(), StandardCharsets.UTF_8));
+		assertEquals(Files.size(file), records.get(2).getNextPosition());
+	}
+
+	@Test
+	void rejectsJsonLineWithoutTopic() throws IOException {
+		Path file = directory.resolve("broken.jsonl");
+		Files.write(file, Arrays.asList("{\"key\":\"K\"}"), StandardCharsets.UTF_8);
+
+		try (OnsReplaySource source = OnsReplaySource.open(file, REGION_SIZE)) {
+			assertThrows(IOException.class, source::next);
+		}
+	}
+
+	@Test
+	void resumesFromRecordPosition() throws IOException {
+		Path file = directory.resolve("resume.bin");
+		try (BinaryReplayWriter writer = new BinaryReplayWriter(file)) {
+			for (int i = 0; i < 10; i++) {
+				writer.write(new Message("TP", "tag", "KEY-" + i, new byte[i * 50]), null);
+			}
+		}
+		List<OnsReplayRecord> records = readAll(file);
+
+		try (OnsReplaySource source = OnsReplaySource.open(file, REGION_SIZE)) {
+			source.seek(records.get(6).getPosition());
+			assertEquals("KEY-6", source.next().getMessage().getKey());
+			// 断点为 0（从未回放）时从第一条记录开始
+			source.seek(0);
+			assertEquals("KEY-0", source.next().getMessage().getKey());
+		}
+	}
+
+	private static List<OnsReplayRecord> readAll(Path file) throws IOException {
+		List<OnsReplayRecord> records = new ArrayList<>();
+		try (OnsReplaySource source = OnsReplaySource.open(file, REGION_SIZE)) {
+			OnsReplayRecord record;
+			while ((record = source.next()) != null) {
+				records.add(record);
+			}
+		}
+		return records;
+	}
+
+}
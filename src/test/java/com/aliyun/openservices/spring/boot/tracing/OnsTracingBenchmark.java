@@ -0,0 +1,108 @@
+package com.aliyun.openservices.spring.boot.tracing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.aliyun.openservices.ons.api.Action;
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.spring.boot.AbstractMessageListener;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+/**
+ * 链路追踪开销基准：off 为未开启追踪（不注册 OnsTracing），sampledOut 为开启追踪但头部采样未命中，sampled 为全量采样
+ * 运行：mvn -Ploadtest test-compile exec:exec@benchmark -Dbenchmark=com.aliyun.openservices.spring.boot.tracing.OnsTracingBenchmark，
+ * JMH 参数通过 -Dbenchmark.args 传入，如 "-Dbenchmark.args=-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OnsTracingBenchmark {
+
+	@Param({ "off", "sampledOut", "sampled" })
+	private String tracing;
+
+	private AliyunOnsMqTemplate template;
+
+	private NoopListener listener;
+
+	private Message tracedMessage;
+
+	@Setup
+	public void setup() {
+		this.template = new AliyunOnsMqTemplate(new AliyunOnsMqPoolProperties());
+		this.listener = new NoopListener();
+		if (!"off".equals(tracing)) {
+			OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+					.setTracerProvider(SdkTracerProvider.builder().setSampler(Sampler.alwaysOn()).build())
+					.build();
+			OpenTelemetryOnsTracing onsTracing = new OpenTelemetryOnsTracing(openTelemetry, "sampled".equals(tracing) ? 1 : 0);
+			template.setTracing(onsTracing);
+			listener.setTracing(onsTracing);
+		}
+		this.tracedMessage = this.message();
+		template.beforeSend(tracedMessage);
+	}
+
+	@Benchmark
+	public Message send() {
+		Message message = this.message();
+		template.beforeSend(message);
+		return message;
+	}
+
+	@Benchmark
+	public Action consume() {
+		return listener.consume(tracedMessage, null);
+	}
+
+	private Message message() {
+		return new Message("benchmark-topic", "tag", "key", "body".getBytes());
+	}
+
+	static class NoopListener extends AbstractMessageListener {
+
+		@Override
+		protected Action doConsume(Message message) {
+			return Action.CommitMessage;
+		}
+
+		@Override
+		public int apply(Message message) {
+			return 0;
+		}
+
+		@Override
+		public void consume(int count, Message message) throws Exception {
+		}
+
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).include(OnsTracingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
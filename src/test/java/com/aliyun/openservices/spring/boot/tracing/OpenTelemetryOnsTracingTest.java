@@ -0,0 +1,163 @@
+package com.aliyun.openservices.spring.boot.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.aliyun.openservices.ons.api.Message;
+import com.aliyun.openservices.ons.api.Producer;
+import com.aliyun.openservices.ons.api.SendCallback;
+import com.aliyun.openservices.ons.api.SendResult;
+import com.aliyun.openservices.ons.api.order.OrderProducer;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqPoolProperties;
+import com.aliyun.openservices.spring.boot.AliyunOnsMqTemplate;
+import com.aliyun.openservices.spring.boot.reactive.ReactiveOnsTemplate;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 切换线程的发送（多线程发送、响应式发送）延续调用方的链路，而不是开启新的根链路
+ */
+class OpenTelemetryOnsTracingTest {
+
+	private final OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+			.setTracerProvider(SdkTracerProvider.builder().setSampler(Sampler.alwaysOn()).build())
+			.build();
+
+	private final AliyunOnsMqTemplate template = new AliyunOnsMqTemplate(new AliyunOnsMqPoolProperties());
+
+	private final Scheduler scheduler = Schedulers.newBoundedElastic(2, 16, "ons-tracing-test");
+
+	private final CompletableFuture<Message> sent = new CompletableFuture<>();
+
+	OpenTelemetryOnsTracingTest() {
+		template.setTracing(new OpenTelemetryOnsTracing(openTelemetry, 0));
+	}
+
+	@AfterEach
+	void shutdown() {
+		template.getThreadPool().shutdownNow();
+		scheduler.dispose();
+	}
+
+	@Test
+	void multiThreadSendContinuesCallerTrace() throws Exception {
+		Span parent = this.startParent();
+		try (Scope scope = parent.makeCurrent()) {
+			template.sendMultiMes(this.producer(), message());
+		} finally {
+			parent.end();
+		}
+
+		assertEquals(parent.getSpanContext().getTraceId(), traceId(sent.get(5, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	void reactiveSendContinuesCallerTrace() throws Exception {
+		ReactiveOnsTemplate reactiveTemplate = new ReactiveOnsTemplate(template, scheduler);
+		Span parent = this.startParent();
+		SendResult sendResult;
+		try (Scope scope = parent.makeCurrent()) {
+			sendResult = reactiveTemplate.send(this.producer(), message()).block(Duration.ofSeconds(5));
+		} finally {
+			parent.end();
+		}
+
+		assertNotNull(sendResult);
+		assertEquals(parent.getSpanContext().getTraceId(), traceId(sent.get(5, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	void reactiveOrderSendCapturesContextAtCallSite() throws Exception {
+		ReactiveOnsTemplate reactiveTemplate = new ReactiveOnsTemplate(template, scheduler);
+		Span parent = this.startParent();
+		Mono<SendResult> send;
+		try (Scope scope = parent.makeCurrent()) {
+			send = reactiveTemplate.sendOrder(this.orderProducer(), message(), "1001");
+		} finally {
+			parent.end();
+		}
+		// 在调用方的上下文之外订阅，发送前处理仍延续调用 sendOrder 时的链路
+		send.block(Duration.ofSeconds(5));
+
+		assertEquals(parent.getSpanContext().getTraceId(), traceId(sent.get(5, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	void sendWithoutCallerContextStartsNewTrace() throws Exception {
+		OpenTelemetryOnsTracing sampled = new OpenTelemetryOnsTracing(openTelemetry, 1);
+		template.setTracing(sampled);
+		Span parent = this.startParent();
+		parent.end();
+
+		template.sendMultiMes(this.producer(), message());
+
+		assertNotEquals(parent.getSpanContext().getTraceId(), traceId(sent.get(5, TimeUnit.SECONDS)));
+	}
+
+	private Span startParent() {
+		return openTelemetry.getTracer("test").spanBuilder("caller").startSpan();
+	}
+
+	private Producer producer() {
+		return (Producer) Proxy.newProxyInstance(Producer.class.getClassLoader(), new Class<?>[] { Producer.class },
+				(proxy, method, args) -> {
+					if ("send".equals(method.getName())) {
+						return this.record((Message) args[0]);
+					}
+					if ("sendAsync".equals(method.getName())) {
+						((SendCallback) args[1]).onSuccess(this.record((Message) args[0]));
+						return null;
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+	}
+
+	private OrderProducer orderProducer() {
+		return (OrderProducer) Proxy.newProxyInstance(OrderProducer.class.getClassLoader(), new Class<?>[] { OrderProducer.class },
+				(proxy, method, args) -> {
+					if ("send".equals(method.getName())) {
+						return this.record((Message) args[0]);
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+	}
+
+	private SendResult record(Message message) {
+		sent.complete(message);
+		SendResult sendResult = new SendResult();
+		sendResult.setTopic(message.getTopic());
+		sendResult.setMessageId("MSG_ID");
+		return sendResult;
+	}
+
+	private static Message message() {
+		return new Message("TOPIC", "TAG", "KEY", "body".getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * traceparent: 00-{traceId}-{spanId}-{flags}
+	 */
+	private static String traceId(Message message) {
+		String traceparent = message.getUserProperties("traceparent");
+		assertNotNull(traceparent, "traceparent must be injected");
+		return traceparent.split("-")[1];
+	}
+
+}